@@ -0,0 +1,60 @@
+package com.ede1998.genalg;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lookups which the simulation and mutation do on the connection graph of a creature, and copying it.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConnectionGraphBenchmark {
+    @Param({"2", "5", "10"})
+    public int nodes;
+
+    @Param({"1", "5", "10"})
+    public int muscles;
+
+    private ConnectionGraph graph;
+    private ConnectionGraph copy;
+
+    @Setup
+    public void setUp() {
+        graph = Creatures.create(nodes, muscles, new RandomNumberGenerator(Creatures.SEED)).getConnections();
+        copy = new ConnectionGraph(Creature.MAX_NODES, Creature.MAX_MUSCLES);
+    }
+
+    /**
+     * Both nodes of every muscle, as the simulation looks them up on every clock tick.
+     */
+    @Benchmark
+    public int muscleNodes() {
+        int sum = 0;
+        for (int m = 0; m < graph.getMuscleCount(); m++)
+            sum += graph.getFirstNode(m) + graph.getSecondNode(m);
+        return sum;
+    }
+
+    /**
+     * All muscles of every node, as removing a node looks them up.
+     */
+    @Benchmark
+    public int nodeMuscles() {
+        int sum = 0;
+        for (int n = 0; n < graph.getNodeCount(); n++)
+            for (int i = 0; i < graph.getDegree(n); i++)
+                sum += graph.getMuscle(n, i);
+        return sum;
+    }
+
+    @Benchmark
+    public ConnectionGraph copyFrom() {
+        copy.copyFrom(graph);
+        return copy;
+    }
+}
@@ -0,0 +1,64 @@
+package com.ede1998.genalg;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Simulation and breeding of a single creature: one movement cycle of Creature.tryToMove, copying and mutating.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CreatureBenchmark {
+    @Param({"2", "5", "10"})
+    public int nodes;
+
+    @Param({"1", "5", "10"})
+    public int muscles;
+
+    private Creature creature;
+    private Creature target;
+    private RandomNumberGenerator random;
+
+    @Setup
+    public void setUp() {
+        random = new RandomNumberGenerator(Creatures.SEED);
+        creature = Creatures.create(nodes, muscles, random);
+        target = new Creature();
+    }
+
+    /**
+     * One movement cycle, i.e. Creature.RESOLUTION clock ticks.
+     */
+    @Benchmark
+    public double moveCycle() {
+        creature.reset();
+        creature.move(1);
+        return creature.getFitness();
+    }
+
+    @Benchmark
+    public Creature cloneCreature() {
+        return creature.clone();
+    }
+
+    @Benchmark
+    public Creature copyFrom() {
+        target.copyFrom(creature);
+        return target;
+    }
+
+    /**
+     * Mutates a fresh copy every time, so the creature does not drift away from its size.
+     */
+    @Benchmark
+    public Creature mutate() {
+        target.copyFrom(creature);
+        target.mutate(random);
+        return target;
+    }
+}
@@ -0,0 +1,42 @@
+package com.ede1998.genalg;
+
+/**
+ * Builds creatures of an exact size for the benchmarks, unlike Creature(RandomNumberGenerator) which picks the numbers
+ * of nodes and muscles at random.
+ */
+final class Creatures {
+    /**
+     * Seed of all random numbers of the benchmarks, so every run measures the same creatures.
+     */
+    static final long SEED = 20170314;
+
+    private Creatures() {
+    }
+
+    /**
+     * @param nodes number of nodes, between 2 and Creature.MAX_NODES
+     * @param muscles number of muscles, between 1 and Creature.MAX_MUSCLES
+     */
+    static Creature create(int nodes, int muscles, RandomNumberGenerator random) {
+        if (nodes < 2 || nodes > Creature.MAX_NODES) throw new IllegalArgumentException("Invalid number of nodes.");
+        if (muscles < 1 || muscles > Creature.MAX_MUSCLES) throw new IllegalArgumentException("Invalid number of muscles.");
+        final Creature creature = new Creature();
+        final Node node = new Node();
+        for (int n = 0; n < nodes; n++) {
+            node.randomize(random);
+            creature.addNode(node.getFriction(), node.getStartPositionX(), node.getStartPositionY());
+        }
+        final Muscle muscle = new Muscle();
+        for (int m = 0; m < muscles; m++) {
+            int n1 = 0, n2 = 0;
+            while (n1 == n2) {
+                n1 = random.randInt(nodes - 1);
+                n2 = random.randInt(nodes - 1);
+            }
+            muscle.randomize(creature.getNode(n1).getDistance(creature.getNode(n2)), random);
+            creature.addMuscle(n1, n2, muscle.getStartLength(), muscle.getContractedLength(),
+                    muscle.getExtendedLength(), muscle.getTimeContractionStart(), muscle.getTimeExtensionStart());
+        }
+        return creature;
+    }
+}
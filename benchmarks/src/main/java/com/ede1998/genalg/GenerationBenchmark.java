@@ -0,0 +1,59 @@
+package com.ede1998.genalg;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Natural selection and breeding of a whole generation. The creatures are not moved: the evaluator derives a fitness
+ * from the genome, so the benchmark measures everything of a generation except the simulation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GenerationBenchmark {
+    @Param({"100", "1000"})
+    public int population;
+
+    @Param({"truncation", "tournament", "rank"})
+    public String selection;
+
+    private Generation generation;
+    private SelectionStrategy strategy;
+    private double[] scores;
+    private RandomNumberGenerator random;
+
+    @Setup
+    public void setUp() {
+        final Evaluator evaluator = (walkers, time, resolution) -> {
+            for (Creature walker : walkers)
+                walker.setFitness((walker.fingerprint() >>> 11) * 0x1.0p-53);
+        };
+        strategy = SelectionStrategy.forName(selection);
+        generation = new Generation(population, Creatures.SEED, evaluator, new FitnessCache(), strategy);
+        random = new RandomNumberGenerator(Creatures.SEED);
+        scores = new double[population];
+        for (int i = 0; i < population; i++)
+            scores[i] = random.random();
+    }
+
+    /**
+     * Selection, copying, mutation and ranking of the next generation.
+     */
+    @Benchmark
+    public Generation nextGeneration() {
+        generation = new Generation(generation);
+        return generation;
+    }
+
+    /**
+     * The selection strategy alone, on a fixed score array.
+     */
+    @Benchmark
+    public int[] select() {
+        return strategy.select(scores, generation.getConfig().getSurvivors(), random);
+    }
+}
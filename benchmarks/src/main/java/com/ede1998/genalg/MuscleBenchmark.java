@@ -0,0 +1,36 @@
+package com.ede1998.genalg;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Muscle.tenseOrRelease over a whole movement cycle, so contraction, extension and the resting phases are all covered.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MuscleBenchmark {
+    private static final int TICKS = 1000;
+    private Muscle muscle;
+
+    @Setup
+    public void setUp() {
+        muscle = new Muscle();
+        muscle.randomize(5, new RandomNumberGenerator(Creatures.SEED));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TICKS)
+    public double tenseOrRelease() {
+        double sum = 0;
+        for (int clock = 0; clock < TICKS; clock++) {
+            muscle.tenseOrRelease((double) clock / TICKS);
+            sum += muscle.getLength();
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,239 @@
+package com.ede1998.genalg;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs whole generations with a fixed seed on several evaluation engines one after another and reports their
+ * throughput, peak heap and GC time as CSV. Every engine starts from the same seed, so all of them have to end up with
+ * the same best fitness; the harness fails if one of them does not.
+ * Options, all optional: --generations=20 --population=100 --seed=20170314 --time=15 --resolution=15000
+ * (population, time and resolution default to EvolutionConfig.DEFAULT) --threads=all processors --warmup=2
+ * --out=throughput.csv
+ * --engines=sequential:object,forkjoin:object,forkjoin:packed,batch
+ * An engine is an evaluator name, optionally followed by a simulator name, see Evaluator.forName(String, int, Simulator),
+ * or "store", which runs the generations out of genome stores (StoredGeneration) instead of creature objects.
+ */
+public final class ThroughputHarness {
+    /**
+     * Maximum relative difference of the best fitness to the first engine which still counts as the same.
+     */
+    static final double TOLERANCE = 1e-9;
+    private static final String HEADER = "engine,generations,population,time,resolution,threads,seconds,"
+            + "generations_per_second,evaluations_per_second,ticks_per_second,peak_heap_bytes,gc_millis,gc_count,"
+            + "best_fitness,same_best";
+
+    private final int generations;
+    private final EvolutionConfig config;
+    private final long seed;
+    private final int threads;
+    private final int warmup;
+
+    /**
+     * @param config parameters of the generations, including how long and how finely the creatures are moved
+     */
+    ThroughputHarness(int generations, EvolutionConfig config, long seed, int threads, int warmup) {
+        if (generations <= 0) throw new IllegalArgumentException("Harness must run at least one generation.");
+        if (config == null) throw new IllegalArgumentException("Null pointer config.");
+        if (threads <= 0) throw new IllegalArgumentException("Harness needs at least one thread.");
+        if (warmup < 0) throw new IllegalArgumentException("Warm-up must not be negative.");
+        this.generations = generations;
+        this.config = config;
+        this.seed = seed;
+        this.threads = threads;
+        this.warmup = warmup;
+    }
+
+    public static void main(String[] args) throws IOException {
+        int generations = 20, warmup = 2;
+        int population = EvolutionConfig.DEFAULT.getPopulation(), time = EvolutionConfig.DEFAULT.getTime();
+        int resolution = EvolutionConfig.DEFAULT.getResolution();
+        int threads = Runtime.getRuntime().availableProcessors();
+        long seed = Creatures.SEED;
+        String engines = "sequential:object,forkjoin:object,forkjoin:packed,batch";
+        Path out = Paths.get("throughput.csv");
+        for (String arg : args) {
+            final int split = arg.indexOf('=');
+            if (!arg.startsWith("--") || split < 0) throw new IllegalArgumentException("Invalid option: " + arg);
+            final String value = arg.substring(split + 1);
+            switch (arg.substring(2, split)) {
+                case "generations": generations = Integer.parseInt(value); break;
+                case "population": population = Integer.parseInt(value); break;
+                case "seed": seed = Long.parseLong(value); break;
+                case "time": time = Integer.parseInt(value); break;
+                case "resolution": resolution = Integer.parseInt(value); break;
+                case "threads": threads = Integer.parseInt(value); break;
+                case "warmup": warmup = Integer.parseInt(value); break;
+                case "engines": engines = value; break;
+                case "out": out = Paths.get(value); break;
+                default: throw new IllegalArgumentException("Unknown option: " + arg);
+            }
+        }
+        final EvolutionConfig config = EvolutionConfig.DEFAULT.withPopulation(population).withTime(time)
+                .withResolution(resolution);
+        final ThroughputHarness harness = new ThroughputHarness(generations, config, seed, threads, warmup);
+        final List<Result> results = new ArrayList<>();
+        for (String engine : engines.split(","))
+            results.add(harness.run(engine.trim()));
+        final boolean same = check(results);
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(out, StandardCharsets.UTF_8))) {
+            writer.println(HEADER);
+            for (Result result : results)
+                writer.println(harness.toCsv(result, results.get(0)));
+        }
+        System.out.println(HEADER);
+        for (Result result : results)
+            System.out.println(harness.toCsv(result, results.get(0)));
+        if (!same) {
+            System.err.println("Engines do not agree on the best fitness.");
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Runs the warm-up and then the measured generations on one engine.
+     * @param engine evaluator name, optionally followed by ':' and a simulator name
+     */
+    Result run(String engine) {
+        if (engine.equals("store")) return runStored(engine);
+        final String[] names = engine.split(":");
+        final Evaluator evaluator = names.length > 1
+                ? Evaluator.forName(names[0], threads, Simulator.forName(names[1]))
+                : Evaluator.forName(names[0], threads);
+        final AtomicLong evaluations = new AtomicLong();
+        final Evaluator counting = (walkers, time, resolution) -> {
+            evaluations.addAndGet(walkers.size());
+            evaluator.evaluate(walkers, time, resolution);
+        };
+        try {
+            if (warmup > 0) {
+                Generation generation = new Generation(config, seed, counting);
+                for (int i = 1; i < warmup; i++)
+                    generation = new Generation(generation);
+            }
+            System.gc();
+            for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+                pool.resetPeakUsage();
+            final long gcMillis = gcMillis(), gcCount = gcCount();
+            evaluations.set(0);
+            final long start = System.nanoTime();
+            Generation generation = new Generation(config, seed, counting);
+            for (int i = 1; i < generations; i++)
+                generation = new Generation(generation);
+            final double seconds = (System.nanoTime() - start) / 1e9;
+            return new Result(engine, seconds, evaluations.get(), peakHeap(), gcMillis() - gcMillis,
+                    gcCount() - gcCount, generation.getWalkerAt(0).getFitness());
+        } finally {
+            evaluator.shutdown();
+        }
+    }
+
+    /**
+     * Runs the warm-up and then the measured generations out of genome stores, every creature being moved.
+     */
+    private Result runStored(String engine) {
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            if (warmup > 0) {
+                StoredGeneration generation = new StoredGeneration(config, seed, executor);
+                for (int i = 1; i < warmup; i++)
+                    generation = new StoredGeneration(generation);
+            }
+            System.gc();
+            for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+                pool.resetPeakUsage();
+            final long gcMillis = gcMillis(), gcCount = gcCount();
+            final long start = System.nanoTime();
+            StoredGeneration generation = new StoredGeneration(config, seed, executor);
+            for (int i = 1; i < generations; i++)
+                generation = new StoredGeneration(generation);
+            final double seconds = (System.nanoTime() - start) / 1e9;
+            return new Result(engine, seconds, (long) generations * config.getPopulation(), peakHeap(),
+                    gcMillis() - gcMillis, gcCount() - gcCount, generation.getFitnessAt(0));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * @return true if all engines reached the best fitness of the first one within TOLERANCE
+     */
+    static boolean check(List<Result> results) {
+        for (Result result : results)
+            if (!sameBest(result, results.get(0))) return false;
+        return true;
+    }
+
+    private static boolean sameBest(Result result, Result reference) {
+        final double difference = Math.abs(result.bestFitness - reference.bestFitness);
+        return difference <= TOLERANCE * Math.max(1, Math.abs(reference.bestFitness));
+    }
+
+    private String toCsv(Result result, Result reference) {
+        return String.format(Locale.ROOT, "%s,%d,%d,%d,%d,%d,%.3f,%.3f,%.1f,%.4g,%d,%d,%d,%.17g,%b",
+                result.engine, generations, config.getPopulation(), config.getTime(), config.getResolution(), threads,
+                result.seconds, generations / result.seconds, result.evaluations / result.seconds,
+                (double) result.evaluations * config.getTime() * config.getResolution() / result.seconds,
+                result.peakHeap, result.gcMillis, result.gcCount, result.bestFitness, sameBest(result, reference));
+    }
+
+    private static long peakHeap() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+            if (pool.getType() == MemoryType.HEAP)
+                peak += pool.getPeakUsage().getUsed();
+        return peak;
+    }
+
+    private static long gcMillis() {
+        long millis = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans())
+            millis += Math.max(0, collector.getCollectionTime());
+        return millis;
+    }
+
+    private static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans())
+            count += Math.max(0, collector.getCollectionCount());
+        return count;
+    }
+
+    /**
+     * Measurements of one engine.
+     */
+    static final class Result {
+        final String engine;
+        final double seconds;
+        final long evaluations;
+        final long peakHeap;
+        final long gcMillis;
+        final long gcCount;
+        final double bestFitness;
+
+        Result(String engine, double seconds, long evaluations, long peakHeap, long gcMillis, long gcCount,
+               double bestFitness) {
+            this.engine = engine;
+            this.seconds = seconds;
+            this.evaluations = evaluations;
+            this.peakHeap = peakHeap;
+            this.gcMillis = gcMillis;
+            this.gcCount = gcCount;
+            this.bestFitness = bestFitness;
+        }
+    }
+}
@@ -0,0 +1,193 @@
+import com.ede1998.genalg.EvolutionSnapshot;
+import com.ede1998.genalg.Trajectory;
+
+import java.awt.*;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Path2D;
+import java.awt.geom.Rectangle2D;
+
+/**
+ * Draws the creatures of a snapshot, each moved so that its centre is at its fitness (the distance it walked).
+ * Everything of one kind and colour is collected into one path and drawn with a single call instead of one call per
+ * muscle or node. Creatures outside the viewport are skipped; creatures which are only a few pixels wide on screen are
+ * drawn as a dot, and nodes are only drawn when they are big enough to be seen. If the best creature's walk has been
+ * recorded, it is replayed in a loop instead of drawing the best creature standing at its goal.
+ * Not thread-safe: the paths are reused from frame to frame.
+ */
+class CreatureRenderer {
+    private static final double MIN_PIXELS_PER_UNIT = 2;
+    private static final double MAX_PIXELS_PER_UNIT = 30;
+    private static final double MARGIN_UNITS = 5;
+    private static final double NODE_DIAMETER_UNITS = 0.33;
+    //below these sizes in pixels, creatures are drawn as dots and nodes are left out
+    private static final double MIN_CREATURE_PIXELS = 6;
+    private static final double MIN_NODE_PIXELS = 4;
+    private static final double DOT_PIXELS = 3;
+    private static final int SHADES = 8;
+    private static final long REPLAY_NANOS = 15_000_000_000L;
+    private static final Color BACKGROUND = Color.white;
+    private static final Color GROUND = Color.gray;
+    private static final Color MUSCLE = Color.gray;
+    private static final Color BEST = Color.red;
+
+    private final Path2D.Double muscles = new Path2D.Double();
+    private final Path2D.Double best = new Path2D.Double();
+    private final Path2D.Double dots = new Path2D.Double();
+    private final Path2D.Double[] nodes = new Path2D.Double[SHADES];
+    private final Color[] shades = new Color[SHADES];
+    private final Ellipse2D.Double ellipse = new Ellipse2D.Double();
+    private final Rectangle2D.Double rectangle = new Rectangle2D.Double();
+    private int drawn;
+    private int simplified;
+    private int culled;
+    private Trajectory.Replay replay;
+    private long replayStart;
+
+    CreatureRenderer() {
+        for (int i = 0; i < SHADES; i++) {
+            nodes[i] = new Path2D.Double();
+            //the more friction, the darker the node
+            final int shade = 255 - 255 * i / (SHADES - 1);
+            shades[i] = new Color(shade, shade, shade);
+        }
+    }
+
+    /**
+     * Renders one frame.
+     * @param g graphics of the back buffer
+     * @param snapshot snapshot to draw, may be null before the first generation is done
+     * @param width width of the viewport in pixels
+     * @param height height of the viewport in pixels
+     * @return true if the frame is animated, i.e. the next one will look different even without a new snapshot
+     */
+    boolean render(Graphics2D g, EvolutionSnapshot snapshot, int width, int height) {
+        final int ground = height * 3 / 4;
+        g.setColor(BACKGROUND);
+        g.fillRect(0, 0, width, height);
+        g.setColor(GROUND);
+        g.drawLine(0, ground, width, ground);
+        if (snapshot == null) return false;
+
+        //fit the walked distances of all creatures into the viewport, but never zoom out so far that nothing is left
+        //to see; then the best creature stays in the centre and the others may be culled
+        double minFitness = Double.POSITIVE_INFINITY, maxFitness = Double.NEGATIVE_INFINITY;
+        for (int c = 0; c < snapshot.getCreatureCount(); c++) {
+            final double fitness = snapshot.getFitness(c);
+            if (Double.isNaN(fitness)) continue;
+            minFitness = Math.min(minFitness, fitness);
+            maxFitness = Math.max(maxFitness, fitness);
+        }
+        if (minFitness > maxFitness) minFitness = maxFitness = 0;
+        final double range = maxFitness - minFitness + 2 * MARGIN_UNITS;
+        final double scale = Math.max(MIN_PIXELS_PER_UNIT, Math.min(MAX_PIXELS_PER_UNIT, width / range));
+        final double centre = scale * range > width ? snapshot.getBestFitness() : (minFitness + maxFitness) / 2;
+        final double left = width / 2.0 - centre * scale;
+        final double nodeDiameter = NODE_DIAMETER_UNITS * scale;
+        final boolean drawNodes = nodeDiameter >= MIN_NODE_PIXELS;
+
+        muscles.reset();
+        best.reset();
+        dots.reset();
+        for (Path2D.Double path : nodes) path.reset();
+        drawn = simplified = culled = 0;
+        //worst first so that better creatures end up on top
+        final Trajectory trajectory = snapshot.getBestTrajectory();
+        if (trajectory != null)
+            replay(trajectory, left, ground, scale, nodeDiameter, drawNodes);
+        for (int c = snapshot.getCreatureCount() - 1; c >= (trajectory == null ? 0 : 1); c--) {
+            final int nodeCount = snapshot.getNodeCount(c);
+            if (nodeCount == 0 || Double.isNaN(snapshot.getFitness(c))) {
+                culled++;
+                continue;
+            }
+            double minX = Double.POSITIVE_INFINITY, maxX = Double.NEGATIVE_INFINITY;
+            double minY = Double.POSITIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY, sumX = 0;
+            for (int n = 0; n < nodeCount; n++) {
+                final double x = snapshot.getNodeX(c, n), y = snapshot.getNodeY(c, n);
+                minX = Math.min(minX, x);
+                maxX = Math.max(maxX, x);
+                minY = Math.min(minY, y);
+                maxY = Math.max(maxY, y);
+                sumX += x;
+            }
+            final double offset = left + (snapshot.getFitness(c) - sumX / nodeCount) * scale;
+            final double screenLeft = offset + minX * scale, screenRight = offset + maxX * scale;
+            final double screenTop = ground - maxY * scale, screenBottom = ground - minY * scale;
+            if (screenRight + nodeDiameter < 0 || screenLeft - nodeDiameter > width
+                    || screenBottom + nodeDiameter < 0 || screenTop - nodeDiameter > height) {
+                culled++;
+                continue;
+            }
+            if (c != 0 && Math.max(screenRight - screenLeft, screenBottom - screenTop) < MIN_CREATURE_PIXELS) {
+                rectangle.setRect((screenLeft + screenRight - DOT_PIXELS) / 2, (screenTop + screenBottom - DOT_PIXELS) / 2,
+                        DOT_PIXELS, DOT_PIXELS);
+                dots.append(rectangle, false);
+                simplified++;
+                continue;
+            }
+            final Path2D.Double target = c == 0 ? best : muscles;
+            for (int m = 0; m < snapshot.getMuscleCount(c); m++) {
+                final int n1 = snapshot.getFirstNode(c, m), n2 = snapshot.getSecondNode(c, m);
+                target.moveTo(offset + snapshot.getNodeX(c, n1) * scale, ground - snapshot.getNodeY(c, n1) * scale);
+                target.lineTo(offset + snapshot.getNodeX(c, n2) * scale, ground - snapshot.getNodeY(c, n2) * scale);
+            }
+            if (drawNodes) {
+                for (int n = 0; n < nodeCount; n++) {
+                    final double friction = Math.max(0, Math.min(1, snapshot.getFriction(c, n)));
+                    ellipse.setFrame(offset + snapshot.getNodeX(c, n) * scale - nodeDiameter / 2,
+                            ground - snapshot.getNodeY(c, n) * scale - nodeDiameter / 2, nodeDiameter, nodeDiameter);
+                    nodes[(int) Math.round(friction * (SHADES - 1))].append(ellipse, false);
+                }
+            }
+            drawn++;
+        }
+
+        g.setColor(MUSCLE);
+        g.fill(dots);
+        g.draw(muscles);
+        g.setColor(BEST);
+        g.draw(best);
+        for (int i = 0; i < SHADES; i++) {
+            g.setColor(shades[i]);
+            g.fill(nodes[i]);
+        }
+        g.setColor(Color.black);
+        g.drawString(snapshot.toString(), 10, 20);
+        g.drawString(String.format("%d drawn, %d as dots, %d culled, %.1f pixels/unit",
+                drawn, simplified, culled, scale), 10, 36);
+        if (trajectory != null)
+            g.drawString(String.format("replaying best: sample %d of %d, %d bytes", replay.getSample() + 1,
+                    trajectory.getSampleCount(), trajectory.getRecordedBytes()), 10, 52);
+        return trajectory != null;
+    }
+
+    /**
+     * Moves the replay to the sample which belongs to the current time and adds the creature to the paths.
+     */
+    private void replay(Trajectory trajectory, double left, int ground, double scale, double nodeDiameter,
+                        boolean drawNodes) {
+        final long now = System.nanoTime();
+        if (replay == null || replay.getTrajectory() != trajectory) {
+            replay = trajectory.replay();
+            replayStart = now;
+        }
+        final int sample = (int) ((now - replayStart) % REPLAY_NANOS * trajectory.getSampleCount() / REPLAY_NANOS);
+        if (sample < replay.getSample())
+            replay.rewind();
+        while (replay.getSample() < sample && replay.next()) ;
+        for (int m = 0; m < trajectory.getMuscleCount(); m++) {
+            final int n1 = trajectory.getFirstNode(m), n2 = trajectory.getSecondNode(m);
+            best.moveTo(left + replay.getX(n1) * scale, ground - replay.getY(n1) * scale);
+            best.lineTo(left + replay.getX(n2) * scale, ground - replay.getY(n2) * scale);
+        }
+        if (drawNodes) {
+            for (int n = 0; n < trajectory.getNodeCount(); n++) {
+                final double friction = Math.max(0, Math.min(1, trajectory.getFriction(n)));
+                ellipse.setFrame(left + replay.getX(n) * scale - nodeDiameter / 2,
+                        ground - replay.getY(n) * scale - nodeDiameter / 2, nodeDiameter, nodeDiameter);
+                nodes[(int) Math.round(friction * (SHADES - 1))].append(ellipse, false);
+            }
+        }
+        drawn++;
+    }
+}
@@ -1,18 +1,108 @@
+import com.ede1998.genalg.EvolutionSnapshot;
+import com.ede1998.genalg.SnapshotExchange;
+
 import javax.swing.*;
 import java.awt.*;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.awt.image.BufferStrategy;
 
 /**
  * Created by 152863eh on 15.03.2017.
+ * Shows the best creatures of the newest generation. A low priority render thread takes the newest snapshot at the
+ * frame rate and draws it into the back buffer of a double buffered canvas, which is then flipped onto the screen;
+ * snapshots published in between are never drawn. A frame is only rendered again if there is a new snapshot, the
+ * canvas changed or the walk of the best creature is being replayed.
  */
 public class GUI extends JFrame {
+    private static final long serialVersionUID = 1L;
+    private static final int FRAMES_PER_SECOND = 60;
+    private final SnapshotExchange snapshots;
+    private final Canvas canvas = new Canvas();
+    private final CreatureRenderer renderer = new CreatureRenderer();
+    private final Thread renderThread = new Thread(this::renderLoop, "genalg-render");
+    private volatile boolean running = true;
+    private EvolutionSnapshot current;
 
-    public GUI(String s) {
+    public GUI(String s, SnapshotExchange snapshots) {
         super(s);
+        if (snapshots == null) throw new IllegalArgumentException("Null pointer snapshots.");
+        this.snapshots = snapshots;
+        setDefaultCloseOperation(WindowConstants.EXIT_ON_CLOSE);
+        //painting is done by the render thread alone
+        setIgnoreRepaint(true);
+        canvas.setIgnoreRepaint(true);
+        add(canvas);
+        renderThread.setDaemon(true);
+        renderThread.setPriority(Thread.MIN_PRIORITY);
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowOpened(WindowEvent e) {
+                //a buffer strategy can only be created once the canvas is displayable
+                canvas.createBufferStrategy(2);
+                renderThread.start();
+            }
+
+            @Override
+            public void windowClosing(WindowEvent e) {
+                running = false;
+            }
+        });
     }
-    public void Draw() {
-        getGraphics().setColor(Color.black);
-        getGraphics().drawRect(0,0,100,100);
-        getGraphics().fillRect(100,100,200,200);
-        getGraphics().fillOval();
+
+    private void renderLoop() {
+        final BufferStrategy strategy = canvas.getBufferStrategy();
+        final long period = 1_000_000_000L / FRAMES_PER_SECOND;
+        long next = System.nanoTime();
+        int width = -1, height = -1;
+        boolean animated = false;
+        while (running) {
+            boolean dirty = animated || strategy.contentsLost();
+            final EvolutionSnapshot snapshot = snapshots.take();
+            if (snapshot != null) {
+                current = snapshot;
+                dirty = true;
+            }
+            if (canvas.getWidth() != width || canvas.getHeight() != height) {
+                width = canvas.getWidth();
+                height = canvas.getHeight();
+                dirty = true;
+            }
+            if (dirty)
+                animated = Draw(strategy, width, height);
+            next += period;
+            final long wait = next - System.nanoTime();
+            if (wait > 0) {
+                try {
+                    Thread.sleep(wait / 1_000_000, (int) (wait % 1_000_000));
+                } catch (InterruptedException e) {
+                    return;
+                }
+            } else {
+                //too slow: drop the frames instead of catching up
+                next = System.nanoTime();
+            }
+        }
+    }
+
+    /**
+     * Renders the current snapshot into the back buffer and shows it, again if the buffer was lost meanwhile.
+     * @return true if the frame is animated and has to be rendered again
+     */
+    private boolean Draw(BufferStrategy strategy, int width, int height) {
+        boolean animated;
+        do {
+            do {
+                final Graphics2D g = (Graphics2D) strategy.getDrawGraphics();
+                try {
+                    animated = renderer.render(g, current, width, height);
+                } finally {
+                    g.dispose();
+                }
+            } while (strategy.contentsRestored());
+            strategy.show();
+        } while (strategy.contentsLost());
+        Toolkit.getDefaultToolkit().sync();
+        return animated;
     }
 }
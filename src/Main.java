@@ -1,19 +1,117 @@
+import com.ede1998.genalg.Checkpoint;
+import com.ede1998.genalg.CheckpointWriter;
+import com.ede1998.genalg.Evaluator;
+import com.ede1998.genalg.Evolution;
+import com.ede1998.genalg.EvolutionSnapshot;
+import com.ede1998.genalg.GenerationLog;
+import com.ede1998.genalg.GenerationMetrics;
+
 import javax.swing.*;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Arrays;
 
 /**
  * Created by 152863eh on 14.03.2017.
+ * Evolution runs on its own thread. The window (or, with --headless, the console) shows the newest snapshot whenever
+ * it is ready for the next frame, so it never slows evolution down. With --metrics, the time spent in every phase of
+ * a generation is measured and published over JMX (see GenerationMetrics); headless runs also print it. With
+ * --log=file.csv, a summary of every generation is appended to the file (see GenerationLog). With
+ * --checkpoint=file[,N], every N-th generation (default 10) is written to the file (see CheckpointWriter), and
+ * --resume=file continues the run stored in a checkpoint file instead of starting a new one.
  */
 public class Main {
-    public static void main(String[] args) {
-        GUI window = new GUI("Genetic Algorithm");
+    private static final int WALKERS = 100;
+    private static final long HEADLESS_REPORT_MILLIS = 1000;
+    private static final int CHECKPOINT_INTERVAL = 10;
+
+    public static void main(String[] args) throws InterruptedException, IOException {
+        final boolean headless = Arrays.asList(args).contains("--headless");
+        if (Arrays.asList(args).contains("--metrics")) {
+            GenerationMetrics.getInstance().setEnabled(true);
+            GenerationMetrics.getInstance().register();
+        }
+        final Evolution evolution = startOrResume(args);
+        //only the window replays the walk of the best creature
+        evolution.setRecording(!headless);
+        GenerationLog log = null;
+        boolean checkpoints = false;
+        for (String arg : args) {
+            if (arg.startsWith("--log=")) {
+                log = new GenerationLog(Paths.get(arg.substring("--log=".length())));
+                evolution.setLog(log);
+            } else if (arg.startsWith("--checkpoint=")) {
+                evolution.setCheckpoints(checkpointWriter(arg.substring("--checkpoint=".length())));
+                checkpoints = true;
+            }
+        }
+        if (log != null || checkpoints)
+            stopOnExit(evolution, log);
+        evolution.start();
+        if (headless)
+            report(evolution);
+        else
+            SwingUtilities.invokeLater(() -> showWindow(evolution));
+    }
+
+    /**
+     * @return evolution of a new run, or of the run stored in the checkpoint given with --resume
+     */
+    private static Evolution startOrResume(String[] args) throws IOException {
+        final Evaluator evaluator = Evaluator.forName("forkjoin", Runtime.getRuntime().availableProcessors());
+        for (String arg : args) {
+            if (!arg.startsWith("--resume=")) continue;
+            try {
+                return new Evolution(Checkpoint.read(Paths.get(arg.substring("--resume=".length())), evaluator));
+            } catch (IOException e) {
+                evaluator.shutdown();
+                throw e;
+            }
+        }
+        return new Evolution(WALKERS, System.nanoTime(), evaluator);
+    }
+
+    /**
+     * @param option file, optionally followed by a comma and the number of generations between two checkpoints
+     */
+    private static CheckpointWriter checkpointWriter(String option) {
+        final int comma = option.lastIndexOf(',');
+        if (comma < 0)
+            return new CheckpointWriter(Paths.get(option), CHECKPOINT_INTERVAL);
+        return new CheckpointWriter(Paths.get(option.substring(0, comma)),
+                Integer.parseInt(option.substring(comma + 1)));
+    }
+
+    /**
+     * Writes the records and the checkpoint still waiting for the disk when the program exits.
+     * @param log generation log, null for none
+     */
+    private static void stopOnExit(Evolution evolution, GenerationLog log) {
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            evolution.stop();
+            try {
+                evolution.join();
+                if (log != null) log.close();
+            } catch (IOException | InterruptedException | IllegalStateException e) {
+                System.err.println("Generation log or checkpoint incomplete: " + e);
+            }
+        }));
+    }
+
+    private static void showWindow(Evolution evolution) {
+        GUI window = new GUI("Genetic Algorithm", evolution.getSnapshots());
         window.setSize(1000, 600);
         window.setVisible(true);
+    }
+
+    private static void report(Evolution evolution) throws InterruptedException {
         while (true) {
-            try {
-                Thread.sleep(100);
-            }
-            catch (InterruptedException a) {}
-            window.Draw();
+            Thread.sleep(HEADLESS_REPORT_MILLIS);
+            final EvolutionSnapshot snapshot = evolution.getSnapshots().take();
+            if (snapshot != null)
+                System.out.println(snapshot);
+            if (GenerationMetrics.getInstance().isEnabled())
+                System.out.print(GenerationMetrics.getInstance().getReport());
         }
     }
 }
@@ -0,0 +1,112 @@
+package com.ede1998.genalg;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Packs the creatures of a generation into shared flat arrays and moves all of them together, clock tick by clock
+ * tick (see PackedPopulation). With more than one thread the generation is cut into contiguous slices with roughly the
+ * same number of muscles, and every slice is moved in lockstep on its own thread.
+ * The positions are the same as if every creature had been moved on its own.
+ */
+public class BatchEvaluator implements Evaluator {
+    private final PackedPopulation[] slices;
+    private final ForkJoinPool pool;
+    private volatile double creatureTicksPerSecond;
+
+    /**
+     * Moves the whole generation in lockstep on the calling thread.
+     */
+    public BatchEvaluator() {
+        this(1);
+    }
+
+    /**
+     * @param threads number of slices which are moved in parallel
+     */
+    public BatchEvaluator(int threads) {
+        if (threads <= 0) throw new IllegalArgumentException("Thread count must be greater than 0.");
+        slices = new PackedPopulation[threads];
+        for (int i = 0; i < threads; i++)
+            slices[i] = new PackedPopulation();
+        pool = threads > 1 ? new ForkJoinPool(threads) : null;
+    }
+
+    /**
+     * @return number of creatures times clock ticks simulated per second during the last evaluation
+     */
+    public double getCreatureTicksPerSecond() {
+        return creatureTicksPerSecond;
+    }
+
+    @Override
+    public void evaluate(List<Creature> walkers, int time, int resolution) {
+        if (walkers.isEmpty()) return;
+        final long start = System.nanoTime();
+        if (pool == null) {
+            move(slices[0], walkers, time, resolution);
+        } else {
+            final int[] bounds = split(walkers, slices.length);
+            List<Callable<Void>> tasks = new ArrayList<>(slices.length);
+            for (int i = 0; i < slices.length; i++) {
+                if (bounds[i] == bounds[i + 1]) continue;
+                final PackedPopulation slice = slices[i];
+                final List<Creature> part = walkers.subList(bounds[i], bounds[i + 1]);
+                tasks.add(() -> {
+                    move(slice, part, time, resolution);
+                    return null;
+                });
+            }
+            for (Future<Void> f : pool.invokeAll(tasks)) {
+                try {
+                    f.get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while waiting for creatures to move.", e);
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+                    throw new IllegalStateException(e.getCause());
+                }
+            }
+        }
+        final double seconds = (System.nanoTime() - start) / 1e9;
+        creatureTicksPerSecond = (double) walkers.size() * time * resolution / seconds;
+    }
+
+    @Override
+    public void shutdown() {
+        if (pool != null)
+            pool.shutdown();
+    }
+
+    private static void move(PackedPopulation slice, List<Creature> walkers, int time, int resolution) {
+        slice.load(walkers);
+        slice.move(time, resolution);
+        slice.store(walkers);
+    }
+
+    /**
+     * Cuts the creatures into contiguous slices with about the same number of muscles each.
+     * @return start index of every slice followed by the number of creatures
+     */
+    private static int[] split(List<Creature> walkers, int sliceCount) {
+        long totalMuscles = 0;
+        for (Creature c : walkers)
+            totalMuscles += c.getMuscleCount();
+        final int[] bounds = new int[sliceCount + 1];
+        long muscles = 0;
+        int slice = 1;
+        for (int i = 0; i < walkers.size() && slice < sliceCount; i++) {
+            muscles += walkers.get(i).getMuscleCount();
+            if (muscles * sliceCount >= totalMuscles * slice)
+                bounds[slice++] = i + 1;
+        }
+        while (slice <= sliceCount)
+            bounds[slice++] = walkers.size();
+        return bounds;
+    }
+}
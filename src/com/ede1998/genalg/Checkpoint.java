@@ -0,0 +1,137 @@
+package com.ede1998.genalg;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Binary checkpoint of a run: a generation with all its creatures, the configuration of the run and the state of the
+ * master random number generator, so a run resumed from a checkpoint produces exactly the same generations as if it
+ * had never stopped.
+ * Layout (big endian): MAGIC, VERSION and the generation number as ints, the configuration (see
+ * EvolutionConfig.write), the generator state (see RandomNumberGenerator.writeState), the number of creatures as int,
+ * then for every creature, best first, its fitness
+ * as double, a byte which is 1 if the fitness is only estimated, and its genome in GenomeCodec form.
+ * Evaluator, fitness cache and selection strategy are not part of a checkpoint; the cache only saves time and does not
+ * change any result.
+ */
+public final class Checkpoint {
+    static final int MAGIC = 0x47414350; //"GACP"
+    //version 1 had no configuration
+    static final int VERSION = 2;
+    private static final int HEADER_BYTES = 3 * Integer.BYTES + EvolutionConfig.BYTES + RandomNumberGenerator.STATE_BYTES
+            + Integer.BYTES;
+    private static final int CREATURE_BYTES = Double.BYTES + 1;
+
+    private Checkpoint() {}
+
+    /**
+     * Writes a checkpoint of the generation. The file is replaced only once the checkpoint is complete.
+     */
+    public static void write(Generation generation, Path file) throws IOException {
+        write(encode(generation), file);
+    }
+
+    /**
+     * Encodes the generation into a buffer, which stays valid when the generation reuses its creatures later.
+     * @return buffer from position 0 to the end of the checkpoint
+     */
+    static ByteBuffer encode(Generation generation) {
+        int size = HEADER_BYTES;
+        for (int i = 0; i < generation.size(); i++)
+            size += CREATURE_BYTES + GenomeCodec.size(generation.getWalkerAt(i));
+        final ByteBuffer out = ByteBuffer.allocate(size);
+        out.putInt(MAGIC).putInt(VERSION).putInt(generation.getNumber());
+        generation.getConfig().write(out);
+        generation.getRandom().writeState(out);
+        out.putInt(generation.size());
+        for (int i = 0; i < generation.size(); i++) {
+            final Creature creature = generation.getWalkerAt(i);
+            out.putDouble(creature.getFitness());
+            out.put((byte) (creature.isFitnessEstimated() ? 1 : 0));
+            GenomeCodec.encode(creature, out);
+        }
+        out.flip();
+        return out;
+    }
+
+    /**
+     * Writes the encoded checkpoint to a temporary file next to the target and moves it over the target.
+     */
+    static void write(ByteBuffer checkpoint, Path file) throws IOException {
+        final Path absolute = file.toAbsolutePath();
+        final Path temporary = absolute.resolveSibling(absolute.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (checkpoint.hasRemaining())
+                channel.write(checkpoint);
+            channel.force(true);
+        }
+        Files.move(temporary, absolute, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Resumes a run which was started with Generation(EvolutionConfig, long, Evaluator), i.e. with truncation selection
+     * using the random death probability of the stored configuration, and a fresh fitness cache.
+     * @param evaluator moves the creatures of the following generations
+     * @return the generation stored in the checkpoint
+     * @throws IOException if the file cannot be read or is no valid checkpoint
+     */
+    public static Generation read(Path file, Evaluator evaluator) throws IOException {
+        return read(file, evaluator, new FitnessCache(), null);
+    }
+
+    /**
+     * Resumes a run from a checkpoint, which is read through a memory mapping of the file. The creatures are not moved
+     * again; the next generation created from the returned one is the same as in the original run, with the
+     * configuration of the original run.
+     * @param evaluator moves the creatures of the following generations
+     * @param cache fitness cache of the following generations
+     * @param selection selection strategy of the following generations, should be the one of the original run; null
+     *                  for the default selection of the stored configuration
+     * @return the generation stored in the checkpoint
+     * @throws IOException if the file cannot be read or is no valid checkpoint
+     */
+    public static Generation read(Path file, Evaluator evaluator, FitnessCache cache, SelectionStrategy selection)
+            throws IOException {
+        final MappedByteBuffer in;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        try {
+            if (in.remaining() < HEADER_BYTES || in.getInt() != MAGIC)
+                throw new IOException(file + " is no checkpoint.");
+            final int version = in.getInt();
+            if (version != VERSION)
+                throw new IOException(file + " has checkpoint version " + version + ", expected " + VERSION + ".");
+            final int number = in.getInt();
+            final EvolutionConfig config = EvolutionConfig.read(in);
+            final RandomNumberGenerator random = RandomNumberGenerator.readState(in);
+            final int count = in.getInt();
+            if (count != config.getPopulation() || count > in.remaining() / CREATURE_BYTES)
+                throw new IOException(file + " is corrupt: " + count + " creatures.");
+            final List<Creature> walkers = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                final double fitness = in.getDouble();
+                final boolean estimated = in.get() != 0;
+                final Creature creature = GenomeCodec.decode(in);
+                if (estimated) creature.estimateFitness(fitness);
+                else creature.setFitness(fitness);
+                walkers.add(creature);
+            }
+            if (in.hasRemaining()) throw new IOException(file + " is corrupt: trailing bytes.");
+            return new Generation(config, number, walkers, random, evaluator, cache,
+                    selection != null ? selection : Generation.defaultSelection(config));
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new IOException(file + " is corrupt.", e);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.ede1998.genalg;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Writes a checkpoint every few generations on a background thread, so evolution does not wait for the disk.
+ * The generation is only encoded into memory on the calling thread, which is fast and necessary because generations
+ * reuse their creatures. If the disk is slower than evolution, only the latest checkpoint waiting to be written is
+ * kept; older ones are skipped.
+ */
+public class CheckpointWriter {
+    private final Path file;
+    private final int interval;
+    private final ExecutorService writer;
+    private final AtomicReference<ByteBuffer> pending = new AtomicReference<>();
+    private final AtomicReference<IOException> failure = new AtomicReference<>();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+
+    /**
+     * @param file checkpoint file, replaced by every new checkpoint
+     * @param interval number of generations between two checkpoints
+     */
+    public CheckpointWriter(Path file, int interval) {
+        if (file == null) throw new IllegalArgumentException("Null pointer file.");
+        if (interval <= 0) throw new IllegalArgumentException("Checkpoint interval must be greater than 0.");
+        this.file = file;
+        this.interval = interval;
+        writer = Executors.newSingleThreadExecutor((Runnable r) -> {
+            Thread t = new Thread(r, "genalg-checkpoint");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Called after every generation; writes a checkpoint if the generation number is a multiple of the interval.
+     */
+    public void offer(Generation generation) {
+        if (generation.getNumber() % interval != 0) return;
+        if (pending.getAndSet(Checkpoint.encode(generation)) != null)
+            skipped.incrementAndGet();
+        else
+            writer.execute(this::writePending);
+    }
+
+    private void writePending() {
+        final ByteBuffer checkpoint = pending.getAndSet(null);
+        if (checkpoint == null) return;
+        try {
+            Checkpoint.write(checkpoint, file);
+            written.incrementAndGet();
+        } catch (IOException e) {
+            failure.set(e);
+        }
+    }
+
+    public long getWritten() {
+        return written.get();
+    }
+
+    /**
+     * @return number of checkpoints which were replaced by a newer one before they were written
+     */
+    public long getSkipped() {
+        return skipped.get();
+    }
+
+    /**
+     * Waits until the last offered checkpoint is written and stops the background thread.
+     * @throws IOException the last error of writing a checkpoint, if any
+     */
+    public void close() throws IOException {
+        writer.shutdown();
+        try {
+            writer.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while writing the last checkpoint.", e);
+        }
+        final IOException e = failure.get();
+        if (e != null) throw e;
+    }
+}
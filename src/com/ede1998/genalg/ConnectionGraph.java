@@ -0,0 +1,201 @@
+package com.ede1998.genalg;
+
+/**
+ * Stores which nodes are connected by which muscle. Nodes and muscles are referred to by their index in the
+ * creature's arrays. For every muscle the indices of both its nodes are kept, and for every node the indices of its
+ * muscles, so all lookups are plain array accesses. When a muscle or node is removed, the last one takes its index,
+ * which the creature has to mirror in its own arrays.
+ * All arrays are allocated up front for the given capacities, so changing or copying the graph never allocates.
+ */
+class ConnectionGraph {
+    private final int[] firstNode;
+    private final int[] secondNode;
+    private final int[][] incidentMuscles;
+    private final int[] degree;
+    private int nodeCount;
+    private int muscleCount;
+
+    public ConnectionGraph(int nodeCapacity, int muscleCapacity) {
+        firstNode = new int[muscleCapacity];
+        secondNode = new int[muscleCapacity];
+        incidentMuscles = new int[nodeCapacity][muscleCapacity];
+        degree = new int[nodeCapacity];
+    }
+
+    /**
+     * Turns this graph into a copy of the other one, which must not have more nodes or muscles than this graph can
+     * hold.
+     */
+    public void copyFrom(ConnectionGraph other) {
+        if (other.nodeCount > degree.length || other.muscleCount > firstNode.length)
+            throw new IllegalArgumentException("Connection graph is too small.");
+        nodeCount = other.nodeCount;
+        muscleCount = other.muscleCount;
+        System.arraycopy(other.firstNode, 0, firstNode, 0, muscleCount);
+        System.arraycopy(other.secondNode, 0, secondNode, 0, muscleCount);
+        System.arraycopy(other.degree, 0, degree, 0, nodeCount);
+        for (int i = 0; i < nodeCount; i++)
+            System.arraycopy(other.incidentMuscles[i], 0, incidentMuscles[i], 0, degree[i]);
+    }
+
+    public int getFirstNode(int muscle) {
+        return firstNode[muscle];
+    }
+
+    public int getSecondNode(int muscle) {
+        return secondNode[muscle];
+    }
+
+    /**
+     * @return number of muscles attached to the node
+     */
+    public int getDegree(int node) {
+        return degree[node];
+    }
+
+    /**
+     * @param node index of the node
+     * @param i number between 0 and getDegree(node) - 1
+     * @return index of the i-th muscle attached to the node
+     */
+    public int getMuscle(int node, int i) {
+        return incidentMuscles[node][i];
+    }
+
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    public int getMuscleCount() {
+        return muscleCount;
+    }
+
+    /**
+     * Removes all nodes and muscles.
+     */
+    public void clear() {
+        nodeCount = muscleCount = 0;
+    }
+
+    /**
+     * @return index of the new node
+     */
+    public int addNode() {
+        if (nodeCount == degree.length) throw new IllegalStateException("Connection graph is full.");
+        degree[nodeCount] = 0;
+        return nodeCount++;
+    }
+
+    /**
+     * @return index of the new muscle
+     */
+    public int addMuscle(int node1, int node2) {
+        if (node1 == node2) throw new IllegalArgumentException("A muscle must connect two different nodes.");
+        if (muscleCount == firstNode.length) throw new IllegalStateException("Connection graph is full.");
+        firstNode[muscleCount] = node1;
+        secondNode[muscleCount] = node2;
+        attach(node1, muscleCount);
+        attach(node2, muscleCount);
+        return muscleCount++;
+    }
+
+    /**
+     * @return true if removing the muscle leaves both its nodes with at least one muscle
+     */
+    public boolean canRemoveMuscle(int muscle) {
+        return degree[firstNode[muscle]] >= 2 && degree[secondNode[muscle]] >= 2;
+    }
+
+    /**
+     * @return true if the creature keeps at least two nodes and removing the node together with its muscles leaves
+     * every neighbouring node with at least one muscle
+     */
+    public boolean canRemoveNode(int node) {
+        if (nodeCount <= 2) return false;
+        for (int i = 0; i < degree[node]; i++) {
+            final int neighbour = getOtherNode(incidentMuscles[node][i], node);
+            int shared = 0;
+            for (int j = 0; j < degree[node]; j++)
+                if (getOtherNode(incidentMuscles[node][j], node) == neighbour) shared++;
+            if (degree[neighbour] <= shared) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Removes the muscle. The muscle with the highest index takes its index.
+     * @throws CrippledCreatureException if a node would be left without any muscle
+     */
+    public void removeMuscle(int muscle) {
+        removeMuscle(muscle, -1);
+    }
+
+    /**
+     * Removes a muscle of a node which is going to be removed as well, so only the other node has to keep a muscle.
+     * The muscle with the highest index takes its index.
+     * @throws CrippledCreatureException if the other node would be left without any muscle
+     */
+    public void removeMuscle(int muscle, int removedNode) {
+        final int n1 = firstNode[muscle], n2 = secondNode[muscle];
+        if ((n1 != removedNode && degree[n1] < 2) || (n2 != removedNode && degree[n2] < 2))
+            throw new CrippledCreatureException();
+        detach(n1, muscle);
+        detach(n2, muscle);
+        final int last = --muscleCount;
+        if (muscle != last) {
+            firstNode[muscle] = firstNode[last];
+            secondNode[muscle] = secondNode[last];
+            replace(firstNode[muscle], last, muscle);
+            replace(secondNode[muscle], last, muscle);
+        }
+    }
+
+    /**
+     * Removes a node without muscles. The node with the highest index takes its index.
+     */
+    public void removeNode(int node) {
+        if (degree[node] != 0) throw new IllegalStateException("Node still has muscles attached.");
+        final int last = --nodeCount;
+        if (node != last) {
+            //swap the rows, so the removed node's row is reused by the next node
+            final int[] incident = incidentMuscles[node];
+            incidentMuscles[node] = incidentMuscles[last];
+            incidentMuscles[last] = incident;
+            degree[node] = degree[last];
+            for (int i = 0; i < degree[node]; i++) {
+                final int muscle = incidentMuscles[node][i];
+                if (firstNode[muscle] == last) firstNode[muscle] = node;
+                if (secondNode[muscle] == last) secondNode[muscle] = node;
+            }
+        }
+        degree[last] = 0;
+    }
+
+    private int getOtherNode(int muscle, int node) {
+        return firstNode[muscle] == node ? secondNode[muscle] : firstNode[muscle];
+    }
+
+    private void attach(int node, int muscle) {
+        incidentMuscles[node][degree[node]++] = muscle;
+    }
+
+    private void detach(int node, int muscle) {
+        final int[] incident = incidentMuscles[node];
+        for (int i = 0; i < degree[node]; i++) {
+            if (incident[i] == muscle) {
+                incident[i] = incident[--degree[node]];
+                return;
+            }
+        }
+    }
+
+    private void replace(int node, int oldMuscle, int newMuscle) {
+        final int[] incident = incidentMuscles[node];
+        for (int i = 0; i < degree[node]; i++) {
+            if (incident[i] == oldMuscle) {
+                incident[i] = newMuscle;
+                return;
+            }
+        }
+    }
+}
@@ -1,67 +1,111 @@
 package com.ede1998.genalg;
 
-import java.util.ArrayList;
-import java.util.Iterator;
-
 /**
  * Contains the creature and its nodes and muscles, also how they are connected
  * Created by 152863eh on 14.03.2017.
  */
 
 public class Creature implements Comparable<Creature> {
-    private static final int RESOLUTION = 15000;
-    private static final double RANDOM_MUTATION_PROBABILITY = 0.03;
-    private static final double MUTATION_DIVERGENCE = 0.2;
-    private static final int MAX_NODES = 10;
-    private static final int MAX_MUSCLES = 10;
-    private Node[] nodes;
-    private Muscle[] muscles;
-    private ConnectionList connections;
-
-
-    private Creature(Node[] nodes, Muscle[] muscles, ConnectionList connections) {
-        this.nodes = nodes;
-        this.muscles = muscles;
-        this.connections = connections;
-    }
-
-    public Creature() {
-        connections = new ConnectionList();
-        nodes = new Node[RandomNumberGenerator.randInt(MAX_NODES)];
-        muscles = new Muscle[RandomNumberGenerator.randInt(MAX_MUSCLES)];
-        for (int j = 0; j < nodes.length; j++) {
-            nodes[j] = new Node();
-        }
-        for (int k = 0; k < muscles.length; k++) {
+    static final int RESOLUTION = 15000;
+    /**
+     * Default tolerance for gait extrapolation, see move(int, int, double).
+     */
+    public static final double GAIT_TOLERANCE = 1e-9;
+    static final double RANDOM_MUTATION_PROBABILITY = 0.03;
+    static final double MUTATION_DIVERGENCE = 0.2;
+    static final int MAX_NODES = 10;
+    static final int MAX_MUSCLES = 10;
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    //slots for MAX_NODES nodes and MAX_MUSCLES muscles, of which the first nodeCount and muscleCount are in use
+    private final Node[] nodes;
+    private final Muscle[] muscles;
+    private final ConnectionGraph connections;
+    //node positions and muscle lengths at the end of the previous movement cycle, see move(int, int, double)
+    private final double[] cycleEndX;
+    private final double[] cycleEndY;
+    private final double[] cycleEndLength;
+    private int nodeCount;
+    private int muscleCount;
+    private double fitness;
+    private boolean fitnessEstimated;
+    //only set while a TrajectoryRecorder moves this creature
+    private TrajectoryRecorder recorder;
+
+
+    /**
+     * Creates a creature without nodes and muscles, with all slots already allocated.
+     */
+    Creature() {
+        nodes = new Node[MAX_NODES];
+        muscles = new Muscle[MAX_MUSCLES];
+        for (int i = 0; i < nodes.length; i++)
+            nodes[i] = new Node();
+        for (int i = 0; i < muscles.length; i++)
+            muscles[i] = new Muscle();
+        connections = new ConnectionGraph(MAX_NODES, MAX_MUSCLES);
+        cycleEndX = new double[MAX_NODES];
+        cycleEndY = new double[MAX_NODES];
+        cycleEndLength = new double[MAX_MUSCLES];
+    }
+
+    /**
+     * Creates a random creature with at least two nodes and one muscle.
+     * @param random stream of this creature, must not be shared with other creatures
+     */
+    public Creature(RandomNumberGenerator random) {
+        this();
+        final int nodesToMake = random.randInt(2, MAX_NODES);
+        final int musclesToMake = random.randInt(1, MAX_MUSCLES);
+        for (int j = 0; j < nodesToMake; j++)
+            createNewNode(random);
+        for (int k = 0; k < musclesToMake; k++) {
             int n1 = 0, n2 = 0;
             while (n1 == n2) {
-                n1 = RandomNumberGenerator.randInt(nodes.length - 1);
-                n2 = RandomNumberGenerator.randInt(nodes.length - 1);
+                n1 = random.randInt(nodeCount - 1);
+                n2 = random.randInt(nodeCount - 1);
             }
-            muscles[k] = new Muscle(nodes[n1].getDistance(nodes[n2]));
-            connections.add(nodes[n1], muscles[k]);
-            connections.add(nodes[n2], muscles[k]);
+            createNewMuscle(n1, n2, random);
         }
     }
 
     public double getPositionX() {
         double pos = 0;
-        for (Node node : nodes) pos += node.getPositionX();
-        return pos / nodes.length;
+        for (int n = 0; n < nodeCount; n++) pos += nodes[n].getPositionX();
+        return pos / nodeCount;
     }
 
     public double getPositionY() {
         double pos = 0;
-        for (Node node : nodes) pos += node.getPositionY();
-        return pos / nodes.length;
+        for (int n = 0; n < nodeCount; n++) pos += nodes[n].getPositionY();
+        return pos / nodeCount;
+    }
+
+    public int getNodeCount() {
+        return nodeCount;
     }
 
-    public Node[] getNodes() {
-        return nodes;
+    public int getMuscleCount() {
+        return muscleCount;
     }
 
-    public Muscle[] getMuscles() {
-        return muscles;
+    Node getNode(int index) {
+        return nodes[index];
+    }
+
+    Muscle getMuscle(int index) {
+        return muscles[index];
+    }
+
+    ConnectionGraph getConnections() {
+        return connections;
+    }
+
+    /**
+     * @param recorder called after every clock tick while the creature moves, null for none
+     */
+    void setRecorder(TrajectoryRecorder recorder) {
+        this.recorder = recorder;
     }
 
     /**
@@ -69,82 +113,251 @@ public class Creature implements Comparable<Creature> {
      * @param time number of repetitons of creature movement
      */
     public void move(int time) {
+        move(time, RESOLUTION);
+    }
+
+    /**
+     * Same as move(int), but with a different number of clock ticks per movement cycle. Fewer ticks are cheaper but
+     * less exact.
+     * @param time number of repetitons of creature movement
+     * @param resolution number of clock ticks per repetition
+     */
+    public void move(int time, int resolution) {
         if (time <= 0) throw new IllegalArgumentException("Time to try must be greater than 0.");
+        if (resolution <= 0) throw new IllegalArgumentException("Resolution must be greater than 0.");
         for (int i = 0; i < time; i++)
-            tryToMove();
+            tryToMove(resolution);
+        updateFitness();
+    }
+
+    /**
+     * Same as move(int, int), but stops simulating once the gait has become periodic.
+     * How the muscles push the nodes only depends on the lengths of the muscles, on which nodes are on the ground and
+     * on the height differences between the nodes, not on x positions or on a common height of all nodes. So if these
+     * are the same at the end of a movement cycle as at the end of the previous one, every further cycle moves each
+     * node by the same distance as the last one. The remaining cycles are then added in one step. If the gait never
+     * repeats, the creature is simulated for the whole time span.
+     * @param time number of repetitons of creature movement
+     * @param resolution number of clock ticks per repetition
+     * @param tolerance maximum difference of height differences and lengths which still counts as repeated, see
+     *                  GAIT_TOLERANCE
+     * @return number of repetitions which were actually simulated
+     */
+    public int move(int time, int resolution, double tolerance) {
+        if (time <= 0) throw new IllegalArgumentException("Time to try must be greater than 0.");
+        if (resolution <= 0) throw new IllegalArgumentException("Resolution must be greater than 0.");
+        if (tolerance < 0) throw new IllegalArgumentException("Tolerance must not be negative.");
+        final double[] lastX = cycleEndX, lastY = cycleEndY, lastLength = cycleEndLength;
+        rememberCycleEnd(lastX, lastY, lastLength);
+        for (int cycle = 0; cycle < time; cycle++) {
+            tryToMove(resolution);
+            if (repeatsCycleEnd(lastY, lastLength, tolerance)) {
+                final int remaining = time - cycle - 1;
+                for (int n = 0; n < nodeCount; n++) {
+                    final double x = nodes[n].getPositionX(), y = nodes[n].getPositionY();
+                    nodes[n].setPosition(x + remaining * (x - lastX[n]), y + remaining * (y - lastY[n]));
+                }
+                updateFitness();
+                return cycle + 1;
+            }
+            rememberCycleEnd(lastX, lastY, lastLength);
+        }
+        updateFitness();
+        return time;
     }
 
+    private void rememberCycleEnd(double[] x, double[] y, double[] length) {
+        for (int n = 0; n < nodeCount; n++) {
+            x[n] = nodes[n].getPositionX();
+            y[n] = nodes[n].getPositionY();
+        }
+        for (int m = 0; m < muscleCount; m++)
+            length[m] = muscles[m].getLength();
+    }
+
+    private boolean repeatsCycleEnd(double[] y, double[] length, double tolerance) {
+        final double shift = nodes[0].getPositionY() - y[0];
+        for (int n = 0; n < nodeCount; n++) {
+            final double height = nodes[n].getPositionY();
+            if ((height == 0) != (y[n] == 0)) return false;
+            if (!(Math.abs(height - y[n] - shift) <= tolerance)) return false;
+        }
+        for (int m = 0; m < muscleCount; m++)
+            if (!(Math.abs(muscles[m].getLength() - length[m]) <= tolerance)) return false;
+        return true;
+    }
+
+    /**
+     * Puts all nodes back to their start positions and all muscles back to their start lengths, so moving the
+     * creature again gives the same result.
+     */
     public void reset() {
-        for (Node n : nodes)
-            n.reset();
+        for (int n = 0; n < nodeCount; n++)
+            nodes[n].reset();
+        for (int m = 0; m < muscleCount; m++)
+            muscles[m].reset();
+    }
+
+    /**
+     * @return how far the creature walked, i.e. its average x position after the last time it moved
+     */
+    public double getFitness() {
+        return fitness;
+    }
+
+    /**
+     * Sets a fitness which was measured elsewhere, e.g. remembered by the fitness cache or reported by a worker process.
+     */
+    void setFitness(double fitness) {
+        this.fitness = fitness;
+        fitnessEstimated = false;
+    }
+
+    /**
+     * Remembers the current position as fitness. Called whenever the creature has finished moving.
+     */
+    void updateFitness() {
+        fitness = getPositionX();
+        fitnessEstimated = false;
+    }
+
+    /**
+     * Sets a fitness which was not measured by moving the creature for the full time, e.g. extrapolated from a shorter
+     * or coarser simulation.
+     */
+    void estimateFitness(double fitness) {
+        this.fitness = fitness;
+        fitnessEstimated = true;
     }
 
-    private void tryToMove() {
+    /**
+     * @return true if the fitness is only an estimate, see estimateFitness(double)
+     */
+    public boolean isFitnessEstimated() {
+        return fitnessEstimated;
+    }
+
+    /**
+     * Calculates a hash of everything that determines how the creature walks: start positions and friction of the
+     * nodes, parameters and start lengths of the muscles and which nodes they connect. Creatures with the same
+     * fingerprint walk the same distance.
+     * @return 64 bit content hash
+     */
+    public long fingerprint() {
+        long hash = FNV_OFFSET;
+        hash = mix(hash, nodeCount);
+        for (int n = 0; n < nodeCount; n++) {
+            hash = mix(hash, Double.doubleToLongBits(nodes[n].getStartPositionX()));
+            hash = mix(hash, Double.doubleToLongBits(nodes[n].getStartPositionY()));
+            hash = mix(hash, Double.doubleToLongBits(nodes[n].getFriction()));
+        }
+        hash = mix(hash, muscleCount);
+        for (int m = 0; m < muscleCount; m++) {
+            hash = mix(hash, Double.doubleToLongBits(muscles[m].getStartLength()));
+            hash = mix(hash, Double.doubleToLongBits(muscles[m].getContractedLength()));
+            hash = mix(hash, Double.doubleToLongBits(muscles[m].getExtendedLength()));
+            hash = mix(hash, Double.doubleToLongBits(muscles[m].getTimeContractionStart()));
+            hash = mix(hash, Double.doubleToLongBits(muscles[m].getTimeExtensionStart()));
+            hash = mix(hash, ((long) connections.getFirstNode(m) << 32) | connections.getSecondNode(m));
+        }
+        //final avalanche, so similar genomes do not end up with similar hashes
+        hash = (hash ^ (hash >>> 33)) * 0xff51afd7ed558ccdL;
+        hash = (hash ^ (hash >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return hash ^ (hash >>> 33);
+    }
+
+    private static long mix(long hash, long value) {
+        return (hash ^ value) * FNV_PRIME;
+    }
+
+    private void tryToMove(int resolution) {
         //TODO hope that works
-        double n1px = 0, n1py = 0, n2py = 0, n2px = 0;
-        for (int clock = 0; clock < RESOLUTION; clock++) {
-            for (Muscle muscle : muscles) {
-                ArrayList<Node> con = connections.getNodes(muscle);
+        final TrajectoryRecorder recorder = this.recorder;
+        for (int clock = 0; clock < resolution; clock++) {
+            for (int m = 0; m < muscleCount; m++) {
+                final Muscle muscle = muscles[m];
+                final Node node1 = nodes[connections.getFirstNode(m)];
+                final Node node2 = nodes[connections.getSecondNode(m)];
+                double n1px = 0, n1py = 0, n2py = 0, n2px = 0;
                 double prevLen = muscle.getLength();
-                muscle.tenseOrRelease(clock / RESOLUTION);
+                muscle.tenseOrRelease((double) clock / resolution);
                 double deltaLen = muscle.getLength() - prevLen;
-                double angle = Math.asin(Math.abs(con.get(0).getPositionY() - con.get(1).getPositionY()) / prevLen);
-                if (con.get(0).getPositionY() == 0) {
-                    if (con.get(1).getPositionY() == 0) { //both on ground
+                //angle of the muscle to the ground, steeper than vertical counts as vertical
+                final double sine = Math.min(Math.abs(node1.getPositionY() - node2.getPositionY()) / prevLen, 1);
+                final double cosine = Math.sqrt(1 - sine * sine);
+                if (node1.getPositionY() == 0) {
+                    if (node2.getPositionY() == 0) { //both on ground
                         //depends on friction, only x, angle = 0
-                        n2px = con.get(1).getFriction() / (con.get(1).getFriction() + con.get(0).getFriction())
+                        n2px = node2.getFriction() / (node2.getFriction() + node1.getFriction())
                                 * deltaLen;
-                        n1px = con.get(0).getFriction() / (con.get(1).getFriction() + con.get(0).getFriction())
+                        n1px = node1.getFriction() / (node2.getFriction() + node1.getFriction())
                                 * deltaLen;
 
                     } else { //node 1 on ground, node 2 in air
                         //node2 moves in x, node1 not; both in y
-                        n2px = Math.sin(angle) * deltaLen;
-                        n2py = Math.cos(angle) * deltaLen / 2;
+                        n2px = sine * deltaLen;
+                        n2py = cosine * deltaLen / 2;
                         n1py = n2py;
                     }
                 } else {
-                    if (con.get(1).getPositionY() == 0) { //node1 in air, node2 on ground
+                    if (node2.getPositionY() == 0) { //node1 in air, node2 on ground
                         //node1 moves in x, node2 not; both in y
-                        n1px = Math.sin(angle) * deltaLen;
-                        n2py = Math.cos(angle) * deltaLen / 2;
+                        n1px = sine * deltaLen;
+                        n2py = cosine * deltaLen / 2;
                         n1py = n2py;
                     } else { //both in air
                         //both move in x and y
-                        n2px = Math.sin(angle) * deltaLen / 2;
+                        n2px = sine * deltaLen / 2;
                         n1px = n2px;
-                        n2py = Math.cos(angle) * deltaLen / 2;
+                        n2py = cosine * deltaLen / 2;
                         n1py = n2py;
                     }
                 }
-                con.get(0).movePosition(n1px, n1py);
-                con.get(1).movePosition(n2px, n2py);
+                node1.movePosition(n1px, n1py);
+                node2.movePosition(n2px, n2py);
                 //TODO prevent form slipping in ground y < 0!
             }
-            for (Node n : nodes) {
-                n.forceMovement();
+            for (int n = 0; n < nodeCount; n++) {
+                nodes[n].forceMovement();
             }
+            if (recorder != null)
+                recorder.tick(nodes);
         }
     }
 
+    /**
+     * Copies the creature as it was before it moved, i.e. with its nodes at their start positions.
+     */
     @Override
     public Creature clone() {
-        Node[] n = new Node[nodes.length];
-        Muscle[] m = new Muscle[muscles.length];
-        ConnectionList c = new ConnectionList();
+        final Creature copy = new Creature();
+        copy.copyFrom(this);
+        return copy;
+    }
 
-        c.addAll(connections);
-        for (int i = 0; i < nodes.length; i++)
-            n[i] = nodes[i].clone();
-        for (int i = 0; i < muscles.length; i++)
-            m[i] = muscles[i].clone();
-        return new Creature(n, m, c);
+    /**
+     * Turns this creature into a copy of the other one as it was before it moved, like clone(), but reusing the nodes,
+     * muscles and connection graph of this creature instead of allocating new ones.
+     * @param other creature to copy, must not be this creature
+     */
+    void copyFrom(Creature other) {
+        if (other == null) throw new IllegalArgumentException("Null pointer creature.");
+        if (other == this) throw new IllegalArgumentException("Creature cannot be copied into itself.");
+        for (int i = 0; i < other.nodeCount; i++)
+            nodes[i].copyFrom(other.nodes[i]);
+        for (int i = 0; i < other.muscleCount; i++)
+            muscles[i].copyFrom(other.muscles[i]);
+        nodeCount = other.nodeCount;
+        muscleCount = other.muscleCount;
+        connections.copyFrom(other.connections);
+        fitness = other.fitness;
+        fitnessEstimated = other.fitnessEstimated;
     }
 
     @Override //this<other => -1
     public int compareTo(Creature otherCreature) {
-        double x1 = this.getPositionX();
-        double x2 = otherCreature.getPositionX();
+        double x1 = this.fitness;
+        double x2 = otherCreature.fitness;
         if (x1 > x2)
             return 1;
         if (x1 < x2)
@@ -152,365 +365,173 @@ public class Creature implements Comparable<Creature> {
         return 0;
     }
 
-    public void mutate() {
-        for (Node n : nodes)
-            n.mutate(MUTATION_DIVERGENCE);
-        for (Muscle m : muscles) {
-            ArrayList<Node> con = connections.getNodes(m);
-            m.mutate(MUTATION_DIVERGENCE, con.get(0).getDistance(con.get(1)));
+    /**
+     * Slightly alters all parameters of this creature and sometimes also adds or removes a node or muscle.
+     * @param random stream of this creature, must not be shared with other creatures
+     * @return which node or muscle was added or removed, NONE if the structure did not change
+     */
+    public Mutation mutate(RandomNumberGenerator random) {
+        return mutate(random, RANDOM_MUTATION_PROBABILITY, MUTATION_DIVERGENCE);
+    }
+
+    /**
+     * Same as mutate(RandomNumberGenerator), with the parameters of a run, see EvolutionConfig.
+     * @param randomMutationProbability probability to add or remove a node or muscle
+     * @param divergence standard deviation of the factor every parameter is multiplied with
+     */
+    public Mutation mutate(RandomNumberGenerator random, double randomMutationProbability, double divergence) {
+        for (int n = 0; n < nodeCount; n++)
+            nodes[n].mutate(divergence, random);
+        for (int m = 0; m < muscleCount; m++) {
+            final Node node1 = nodes[connections.getFirstNode(m)];
+            final Node node2 = nodes[connections.getSecondNode(m)];
+            muscles[m].mutate(divergence, node1.getDistance(node2), random);
         }
-        if (RandomNumberGenerator.randBool(RANDOM_MUTATION_PROBABILITY))
-            switch (RandomNumberGenerator.randInt(3)) {
+        if (random.randBool(randomMutationProbability))
+            switch (random.randInt(3)) {
                 case 0:
-                    mutationAddNode();
-                    break;
+                    return mutationAddNode(random) ? Mutation.ADD_NODE : Mutation.NONE;
                 case 1:
-                    mutationAddMuscle();
-                    break;
+                    return mutationAddMuscle(random) ? Mutation.ADD_MUSCLE : Mutation.NONE;
                 case 2:
-                    mutationRemoveMuscle();
-                    break;
+                    return mutationRemoveMuscle(random) ? Mutation.REMOVE_MUSCLE : Mutation.NONE;
                 case 3:
-                    mutationRemoveNode();
-                    break;
+                    return mutationRemoveNode(random) ? Mutation.REMOVE_NODE : Mutation.NONE;
             }
+        return Mutation.NONE;
     }
 
-    private Node createNewNode() {
-        Node[] tmpNodes = new Node[nodes.length + 1];
-        System.arraycopy(nodes, 0, tmpNodes, 0, nodes.length);
-        tmpNodes[nodes.length] = new Node();
-        nodes = tmpNodes;
-        return nodes[nodes.length - 1];
-    }
-
-    private Muscle createNewMuscle(double length) {
-        Muscle[] tmpMuscles = new Muscle[muscles.length + 1];
-        System.arraycopy(muscles, 0, tmpMuscles, 0, muscles.length);
-        tmpMuscles[muscles.length] = new Muscle(length);
-        muscles = tmpMuscles;
-        return muscles[muscles.length - 1];
-    }
-
-    private void mutationAddNode() {
-        //Create new Node
-        final Node newNode = createNewNode();
-        Node conNode = null;
-        while (newNode == conNode)
-            conNode = nodes[RandomNumberGenerator.randInt(nodes.length - 1)];
-        //Create new muscle to connect node with
-        Muscle newMuscle = createNewMuscle(newNode.getDistance(conNode));
-
-        connections.add(conNode, newMuscle);
-        connections.add(newNode, newMuscle);
-
+    /**
+     * Removes all nodes and muscles, so the genome can be rebuilt with addNode and addMuscle.
+     */
+    void clearGenome() {
+        nodeCount = muscleCount = 0;
+        connections.clear();
     }
 
-    private void mutationRemoveNode() {
-        Node[] tmpNode = new Node[nodes.length - 1];
-        final int toDelete = RandomNumberGenerator.randInt(nodes.length - 1);
-        connections.remove(nodes[toDelete]);
-        System.arraycopy(nodes, 0, tmpNode, 0, toDelete);
-        System.arraycopy(nodes, toDelete + 1 - 1, tmpNode, toDelete + 1, tmpNode.length - (toDelete + 1)); //TODO check if this works
+    /**
+     * Puts a node with the given parameters into the next free slot.
+     * @return index of the new node
+     */
+    int addNode(double friction, double startPositionX, double startPositionY) {
+        if (nodeCount >= MAX_NODES) throw new IllegalStateException("Creature has too many nodes.");
+        nodes[nodeCount++].set(friction, startPositionX, startPositionY);
+        return connections.addNode();
     }
 
-    private void mutationAddMuscle() {
-        int n1 = 0, n2 = 0;
-        while (n1 == n2) {
-            n1 = RandomNumberGenerator.randInt(nodes.length - 1);
-            n2 = RandomNumberGenerator.randInt(nodes.length - 1);
-        }
-        Muscle newMuscle = createNewMuscle(nodes[n1].getDistance(nodes[n2]));
-        connections.add(nodes[n1], newMuscle);
-        connections.add(nodes[n2], newMuscle);
+    /**
+     * Puts a muscle with the given parameters between both nodes into the next free slot.
+     * @return index of the new muscle
+     */
+    int addMuscle(int node1, int node2, double startLength, double contractedLength, double extendedLength,
+                  double timeContractionStart, double timeExtensionStart) {
+        if (muscleCount >= MAX_MUSCLES) throw new IllegalStateException("Creature has too many muscles.");
+        if (node1 < 0 || node1 >= nodeCount || node2 < 0 || node2 >= nodeCount)
+            throw new IllegalArgumentException("Muscle must connect existing nodes.");
+        muscles[muscleCount].set(startLength, contractedLength, extendedLength, timeContractionStart, timeExtensionStart);
+        muscleCount++;
+        return connections.addMuscle(node1, node2);
     }
 
-    private void mutationRemoveMuscle() {
-        int toDelete;
-        boolean removedMuscle;
-        Muscle[] tmpMuscles = new Muscle[nodes.length - 1];
-        do {
-            toDelete = RandomNumberGenerator.randInt(nodes.length - 1);
-            removedMuscle = connections.remove(muscles[toDelete]);
-        } while (!removedMuscle);
-
-        System.arraycopy(muscles, 0, tmpMuscles, 0, toDelete);
-        System.arraycopy(muscles, toDelete + 1 - 1, tmpMuscles, toDelete + 1, tmpMuscles.length - (toDelete + 1)); //TODO check if this works
-        muscles = tmpMuscles;
+    /**
+     * Puts a random node into the next free slot.
+     */
+    private Node createNewNode(RandomNumberGenerator random) {
+        final Node node = nodes[nodeCount++];
+        node.randomize(random);
+        connections.addNode();
+        return node;
     }
-}
-
-class Muscle {
-    private static final double MAX_MUSCLE_LENGTH = 12;
-    // private double strength;
-    private double contractedLength;
-    private double extendedLength;
-    private double timeContractionStart;
-    private double timeExtensionStart;
-    private double length;
-
-    private Muscle(double length, double contractedLength, double extendedLength, double timeContractionStart, double timeExtensionStart) {
-
-        //this.strength = strength;
-        this.contractedLength = contractedLength;
-        this.extendedLength = extendedLength;
-        if (contractedLength > extendedLength)
-            throw new IllegalArgumentException("Extended muscle must be longer than contracted muscle.");
-        if ((timeContractionStart < 0) || (timeContractionStart > 1)) {
-            throw new IllegalArgumentException("timeContractionStart must be between 0 and 1.");
-        }
-        if ((timeExtensionStart < 0) || (timeExtensionStart > 1)) {
-            throw new IllegalArgumentException(("timeExtensionStart must be between 0 and 1."));
-        }
-        if (timeContractionStart == timeExtensionStart) {
-            throw new IllegalArgumentException("timeExtensionStart must differ from timeContractionStart.");
-        }
 
-        this.timeContractionStart = timeContractionStart;
-        this.timeExtensionStart = timeExtensionStart;
-        this.length = length;
+    /**
+     * Puts a random muscle between both nodes into the next free slot.
+     */
+    private Muscle createNewMuscle(int n1, int n2, RandomNumberGenerator random) {
+        final Muscle muscle = muscles[muscleCount++];
+        muscle.randomize(nodes[n1].getDistance(nodes[n2]), random);
+        connections.addMuscle(n1, n2);
+        return muscle;
     }
 
-    public Muscle(double length) {
-       this(length, length - RandomNumberGenerator.random(length),
-                        length + RandomNumberGenerator.random(Muscle.MAX_MUSCLE_LENGTH - length),
-                        RandomNumberGenerator.random(), RandomNumberGenerator.random());
+    /**
+     * Removes the muscle at the given index. Like in the connection graph, the last muscle takes its place; the slot
+     * of the removed muscle is kept behind the used ones.
+     * @param removedNode node which is removed as well and may lose its last muscle, -1 if there is none
+     */
+    private void deleteMuscle(int muscle, int removedNode) {
+        connections.removeMuscle(muscle, removedNode);
+        final Muscle removed = muscles[muscle];
+        muscles[muscle] = muscles[--muscleCount];
+        muscles[muscleCount] = removed;
     }
 
-    public double getLength() {
-        return length;
-        //TODO make sure length is initialized before first call
+    /**
+     * Removes the node at the given index together with all its muscles. Like in the connection graph, the last node
+     * takes its place.
+     */
+    private void deleteNode(int node) {
+        while (connections.getDegree(node) > 0)
+            deleteMuscle(connections.getMuscle(node, 0), node);
+        connections.removeNode(node);
+        final Node removed = nodes[node];
+        nodes[node] = nodes[--nodeCount];
+        nodes[nodeCount] = removed;
     }
 
-    public void tenseOrRelease(double timeQuotient) {
-        length = calcLengthQuotient(timeQuotient) * (extendedLength - contractedLength) + contractedLength;
+    private boolean mutationAddNode(RandomNumberGenerator random) {
+        if (nodeCount >= MAX_NODES || muscleCount >= MAX_MUSCLES) return false;
+        //Create new Node
+        createNewNode(random);
+        final int newNode = nodeCount - 1;
+        final int conNode = random.randInt(newNode - 1);
+        //Create new muscle to connect node with
+        createNewMuscle(conNode, newNode, random);
+        return true;
     }
 
-    private double calcLengthQuotient(double timeQuotient) {
-        if ((timeQuotient > 1) || (timeQuotient < 0))
-            throw new IllegalArgumentException("timeQuotient must be between 0 and 1.");
-        //equal to contraction
-        if (timeQuotient == timeContractionStart) {
-            return 1;
-        }
-        // equal to extension
-        else if (timeQuotient == timeExtensionStart) {
-            return 0;
-        }
-        //smaller than both
-        else if ((timeQuotient < timeExtensionStart) && (timeQuotient < timeContractionStart)) {
-            //it's contraction time
-            if (timeExtensionStart < timeContractionStart) {
-                return (1 - timeContractionStart + timeQuotient) / (1 - (timeContractionStart - timeExtensionStart));
-            } else //C < E => it's extension time
-            {
-                return (1 - timeExtensionStart + timeQuotient) / (1 - (timeExtensionStart - timeContractionStart));
-            }
-        }
-        //larger than both
-        else if ((timeQuotient > timeExtensionStart) && (timeQuotient > timeContractionStart)) {
-            //it's contraction time
-            if (timeExtensionStart < timeContractionStart) {
-                return (timeQuotient - timeContractionStart) / (1 - (timeContractionStart - timeExtensionStart));
-            } else //C < E => it's extension time
-            {
-                return (timeQuotient - timeExtensionStart) / (1 - (timeExtensionStart - timeContractionStart));
-            }
-        }
-        //between both
-        else {
-            //it's contraction time
-            if (timeExtensionStart < timeContractionStart) {
-                return (timeQuotient - timeExtensionStart) / (timeContractionStart - timeExtensionStart);
-            } else //C < E => it's extension time
-            {
-                return 1 - ((timeQuotient - timeContractionStart) / (timeExtensionStart - timeContractionStart));
+    /**
+     * Removes a random node and its muscles, as long as this does not leave another node without any muscle.
+     * If no node can be removed, nothing happens.
+     * @return true if a node was removed
+     */
+    private boolean mutationRemoveNode(RandomNumberGenerator random) {
+        if (nodeCount <= 2) return false;
+        final int start = random.randInt(nodeCount - 1);
+        for (int i = 0; i < nodeCount; i++) {
+            final int toDelete = (start + i) % nodeCount;
+            if (connections.canRemoveNode(toDelete)) {
+                deleteNode(toDelete);
+                return true;
             }
         }
+        return false;
     }
 
-    @Override
-    public Muscle clone() {
-        return new Muscle(length, contractedLength, extendedLength, timeContractionStart, timeExtensionStart);
-    }
-
-    public void mutate(double divergence, double startingDist) {
-        contractedLength *= RandomNumberGenerator.randG(divergence, 1);
-        extendedLength *= RandomNumberGenerator.randG(divergence, 1);
-        if (contractedLength > startingDist) contractedLength = startingDist;
-        if (extendedLength < startingDist) extendedLength = startingDist;
-        length = startingDist;
-
-        timeContractionStart *= RandomNumberGenerator.randG(divergence, 1);
-        while (timeContractionStart >= 1) timeContractionStart--;
-        while (timeContractionStart < 0) timeContractionStart++;
-        timeExtensionStart *= RandomNumberGenerator.randG(divergence, 1);
-        if (timeExtensionStart >= 1) timeExtensionStart--;
-        if (timeExtensionStart < 0) timeExtensionStart++;
-    }
-}
-
-class Node {
-    private static final double MAX_POS_X = 10;
-    private static final double MAX_POS_Y = 10;
-    private double friction;
-    private double positionX;
-    private double positionY;
-    private double startPositionX;
-    private double startPositionY;
-    private double deltaX, deltaY;
-    private int connections;
-
-
-    private Node(double friction, double posX, double posY) throws IllegalArgumentException {
-        if ((friction < 0) || (friction > 1))
-            throw new IllegalArgumentException("Node friction must be between 0 and 1.");
-        this.friction = friction;
-        this.positionX = posX;
-        this.startPositionX = posX;
-        if (posY < 0)
-            throw new IllegalArgumentException("Node must be above ground.");
-        this.positionY = posY;
-        this.startPositionY = posY;
-        connections = 0;
-    }
-
-    public Node() {
-        this(RandomNumberGenerator.random(), RandomNumberGenerator.random(0, MAX_POS_X),
-                        RandomNumberGenerator.random(0, MAX_POS_Y));
-    }
-
-    public double getFriction() {
-        return friction;
-    }
-
-    public double getPositionX() {
-        return positionX;
-    }
-
-    public double getPositionY() {
-        return positionY;
-    }
-
-    public void movePosition(double deltaX, double deltaY) {
-        this.deltaX += deltaX;
-        this.deltaY += deltaY;
-    }
-
-    public void forceMovement() {
-        positionX += deltaX;
-        positionY += deltaY;
-        deltaX = 0;
-        deltaY = 0;
-    }
-
-    public void reset() {
-        this.positionX = startPositionX;
-        this.positionY = startPositionY;
-        deltaX = deltaY = 0;
-    }
-
-    @Override
-    public Node clone() {
-        return new Node(friction, positionX, positionY);
-    }
-
-    public double getDistance(Node n2) {
-        return Math.sqrt(Math.pow(this.getPositionX() - n2.getPositionX(), 2) + Math.pow(this.getPositionY() - n2.getPositionY(), 2));
-    }
-
-    public void mutate(double divergence) {
-        startPositionY *= RandomNumberGenerator.randG(divergence, 1);
-        if (startPositionY < 0)
-            startPositionY = 0;
-        startPositionX *= RandomNumberGenerator.randG(divergence, 1);
-        positionX = startPositionX;
-        positionY = startPositionY;
-        friction *= RandomNumberGenerator.randG(divergence, 1);
-    }
-
-    public void addConnection() {
-        connections++;
-    }
-
-    public void removeConnection() {
-        if (connections < 2) throw new CrippledCreatureException();
-        connections--;
-    }
-
-    public int getConnections() {
-        return connections;
-    }
-}
-
-class NodeMuscleMapping {
-    private final Node node;
-    private final Muscle muscle;
-
-    public NodeMuscleMapping(Node node, Muscle muscle) {
-        this.node = node;
-        this.muscle = muscle;
-    }
-
-    public Node getNode() {
-        return node;
-    }
-
-    public Muscle getMuscle() {
-        return muscle;
-    }
-}
-
-class ConnectionList extends ArrayList<NodeMuscleMapping> {
-
-    @SuppressWarnings("UnusedReturnValue")
-    public boolean add(Node node, Muscle muscle) {
-        node.addConnection();
-        return super.add(new NodeMuscleMapping(node, muscle));
-    }
-
-    public void remove(Node node) {
-        forEach((NodeMuscleMapping nmm) -> {if (nmm.getNode() == node) remove(nmm.getMuscle());}); //TODO check if works
-    }
-
-    public boolean remove(Muscle muscle) {
-        Iterator<NodeMuscleMapping> tmp = iterator();
-        NodeMuscleMapping nmm;
-        while (tmp.hasNext()) {
-            nmm = tmp.next();
-            if (nmm.getMuscle() == muscle)
-                if (nmm.getNode().getConnections() < 2)
-                    return false;
+    private boolean mutationAddMuscle(RandomNumberGenerator random) {
+        if (muscleCount >= MAX_MUSCLES) return false;
+        int n1 = 0, n2 = 0;
+        while (n1 == n2) {
+            n1 = random.randInt(nodeCount - 1);
+            n2 = random.randInt(nodeCount - 1);
         }
-        forEach((NodeMuscleMapping nmm1) -> {
-            if (nmm1.getMuscle() == muscle) {
-                super.remove(nmm1);
-                nmm1.getNode().removeConnection();
-            }
-        }); //TODO check if works
+        createNewMuscle(n1, n2, random);
         return true;
     }
 
-    public ArrayList<Muscle> getMuscle(Node node) {
-        ArrayList<Muscle> muscle = new ArrayList<>();
-        this.forEach((NodeMuscleMapping m) -> {
-            if (m.getNode() == node)
-                muscle.add(m.getMuscle());
-        });
-        return muscle;
-    }
-
-    public ArrayList<Node> getNodes(Muscle muscle) {
-        ArrayList<Node> nodes = new ArrayList<>();
-        this.forEach((NodeMuscleMapping m) -> {
-            if (m.getMuscle() == muscle)
-                nodes.add(m.getNode());
-        });
-        if (nodes.size() != 2)
-            throw new CrippledCreatureException();
-        return nodes;
+    /**
+     * Removes a random muscle, as long as both its nodes keep at least one other muscle.
+     * If no muscle can be removed, nothing happens.
+     * @return true if a muscle was removed
+     */
+    private boolean mutationRemoveMuscle(RandomNumberGenerator random) {
+        final int start = random.randInt(muscleCount - 1);
+        for (int i = 0; i < muscleCount; i++) {
+            final int toDelete = (start + i) % muscleCount;
+            if (connections.canRemoveMuscle(toDelete)) {
+                deleteMuscle(toDelete, -1);
+                return true;
+            }
+        }
+        return false;
     }
-
 }
-
-class CrippledCreatureException extends RuntimeException {}
\ No newline at end of file
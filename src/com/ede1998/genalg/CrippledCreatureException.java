@@ -0,0 +1,8 @@
+package com.ede1998.genalg;
+
+/**
+ * Thrown if a change of the connection graph would leave a node without any muscle.
+ */
+class CrippledCreatureException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+}
@@ -0,0 +1,88 @@
+package com.ede1998.genalg;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Worker process of RemoteEvaluator. Connects to the coordinator, then moves the creatures of every batch it receives
+ * and sends back their fitness, until the coordinator closes the connection. See RemoteProtocol.
+ * Usage: EvaluationWorker host port [simulator], where simulator is a name accepted by Simulator.forName(String).
+ */
+public class EvaluationWorker {
+    private final Simulator simulator;
+    private final List<Creature> creatures = new ArrayList<>();
+    private byte[] frame = new byte[1024];
+    private byte[] result = new byte[1024];
+
+    public EvaluationWorker(Simulator simulator) {
+        if (simulator == null) throw new IllegalArgumentException("Null pointer simulator.");
+        this.simulator = simulator;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: EvaluationWorker host port [simulator]");
+            System.exit(2);
+        }
+        final Simulator simulator = Simulator.forName(args.length > 2 ? args[2] : "packed");
+        try (Socket socket = new Socket(args[0], Integer.parseInt(args[1]))) {
+            socket.setTcpNoDelay(true);
+            new EvaluationWorker(simulator).serve(socket);
+        }
+    }
+
+    /**
+     * Answers batches until the other side closes the connection.
+     */
+    public void serve(Socket socket) throws IOException {
+        final DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        final ByteBuffer hello = ByteBuffer.allocate(2 * Integer.BYTES);
+        hello.putInt(RemoteProtocol.MAGIC).putInt(RemoteProtocol.VERSION);
+        RemoteProtocol.writeFrame(out, hello.array(), hello.position());
+        out.flush();
+        final int[] length = new int[1];
+        while (true) {
+            try {
+                frame = RemoteProtocol.readFrame(in, frame, length);
+            } catch (EOFException e) {
+                return;
+            }
+            final int resultLength = evaluate(ByteBuffer.wrap(frame, 0, length[0]));
+            RemoteProtocol.writeFrame(out, result, resultLength);
+            //the coordinator waits for the oldest batch, so its result must not wait for the next one
+            out.flush();
+        }
+    }
+
+    /**
+     * Moves the creatures of a batch frame and writes the result frame into result.
+     * @return length of the result frame
+     */
+    private int evaluate(ByteBuffer batch) {
+        final int id = batch.getInt(), time = batch.getInt(), resolution = batch.getInt(), count = batch.getInt();
+        if (count < 0 || count > RemoteProtocol.MAX_FRAME_BYTES / GenomeCodec.MAX_BYTES)
+            throw new IllegalArgumentException("Invalid batch size " + count + ".");
+        final int resultLength = RemoteProtocol.RESULT_HEADER_BYTES + count * Double.BYTES;
+        if (result.length < resultLength) result = new byte[resultLength];
+        final ByteBuffer out = ByteBuffer.wrap(result);
+        out.putInt(id).putInt(count);
+        while (creatures.size() < count)
+            creatures.add(new Creature());
+        for (int i = 0; i < count; i++) {
+            final Creature creature = creatures.get(i);
+            GenomeCodec.decode(batch, creature);
+            simulator.simulate(creature, time, resolution);
+            out.putDouble(creature.getFitness());
+        }
+        return resultLength;
+    }
+}
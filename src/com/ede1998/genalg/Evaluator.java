@@ -0,0 +1,69 @@
+package com.ede1998.genalg;
+
+import java.util.List;
+
+/**
+ * An evaluator lets every creature of a generation try to walk for a given time span.
+ * Implementations only differ in how this work is spread over threads. Creatures do not share any state while moving,
+ * so the outcome of an evaluation is always the same as if all creatures had been moved one after another.
+ */
+public interface Evaluator {
+
+    /**
+     * Moves all given creatures. The method returns once every creature has finished moving.
+     * @param walkers creatures to evaluate
+     * @param time number of repetitions of creature movement, see Creature.move(int, int)
+     * @param resolution number of clock ticks per repetition
+     */
+    void evaluate(List<Creature> walkers, int time, int resolution);
+
+    /**
+     * Moves all given creatures at the full resolution.
+     * @param walkers creatures to evaluate
+     * @param time number of repetitions of creature movement, see Creature.move(int)
+     */
+    default void evaluate(List<Creature> walkers, int time) {
+        evaluate(walkers, time, Creature.RESOLUTION);
+    }
+
+    /**
+     * Releases the threads held by this evaluator. The evaluator must not be used afterwards.
+     */
+    default void shutdown() {
+    }
+
+    /**
+     * Creates an evaluator by name which moves the creatures on their own nodes and muscles.
+     * @param name one of "sequential", "forkjoin", "pool", "batch" or "staged"
+     * @param threads number of worker threads, ignored by the sequential evaluator
+     * @return the new evaluator
+     */
+    static Evaluator forName(String name, int threads) {
+        return forName(name, threads, new ObjectSimulator());
+    }
+
+    /**
+     * Creates an evaluator by name.
+     * @param name one of "sequential", "forkjoin", "pool", "batch" or "staged"; "batch" moves the packed generation,
+     *             "staged" screens the creatures on the fork/join evaluator with the defaults of StagedEvaluator
+     * @param threads number of worker threads, ignored by the sequential evaluator
+     * @param simulator moves a single creature, see Simulator.forName(String); ignored by the batch evaluators
+     * @return the new evaluator
+     */
+    static Evaluator forName(String name, int threads, Simulator simulator) {
+        switch (name) {
+            case "sequential":
+                return new SequentialEvaluator(simulator);
+            case "forkjoin":
+                return new ForkJoinEvaluator(threads, simulator);
+            case "pool":
+                return new FixedPoolEvaluator(threads, simulator);
+            case "batch":
+                return new BatchEvaluator(threads);
+            case "staged":
+                return new StagedEvaluator(new ForkJoinEvaluator(threads, simulator));
+            default:
+                throw new IllegalArgumentException("Unknown evaluator: " + name);
+        }
+    }
+}
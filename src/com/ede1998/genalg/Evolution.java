@@ -0,0 +1,210 @@
+package com.ede1998.genalg;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Runs generation after generation on a thread of its own and publishes a snapshot after every generation, so
+ * neither printing nor drawing the progress slows evolution down. The evaluator may use further threads.
+ * If recording is enabled, a copy of every new best creature is handed to a low priority recorder thread, which
+ * simulates its walk once more and records it, so it can be replayed. Snapshots only carry the recording once it
+ * is done and only while its creature is still the best one; a creature which is replaced before its recording is
+ * done is skipped.
+ * If a checkpoint writer is set, every generation is offered to it, and it is closed when evolution stops.
+ */
+public class Evolution {
+    /**
+     * Number of best creatures whose shapes every snapshot contains.
+     */
+    public static final int SNAPSHOT_CREATURES = 500;
+    //the walk of the best creature is recorded 50 times per movement cycle
+    private static final int REPLAY_SAMPLES_PER_CYCLE = 50;
+    private static final int REPLAY_SAMPLES = 1024;
+    private final int walkers;
+    private final long seed;
+    private final Evaluator evaluator;
+    //generation to continue from, null to start a new run
+    private final Generation resumed;
+    private final SnapshotExchange snapshots = new SnapshotExchange();
+    private final Thread thread;
+    private final Thread recorderThread;
+    //newest best creature which has not been recorded yet
+    private final AtomicReference<Creature> toRecord = new AtomicReference<>();
+    //time and resolution of the walks to record, set before the first creature is handed over
+    private volatile EvolutionConfig config;
+    private volatile Recording recording;
+    private volatile boolean recordingEnabled;
+    private volatile boolean stopped;
+    private volatile Throwable failure;
+    private GenerationLog log;
+    private CheckpointWriter checkpoints;
+
+    /**
+     * @param walkers number of creatures of every generation
+     * @param seed master seed of the run
+     * @param evaluator moves the creatures; shut down when evolution ends
+     */
+    public Evolution(int walkers, long seed, Evaluator evaluator) {
+        this(walkers, seed, evaluator, null);
+    }
+
+    /**
+     * Continues a run, e.g. one read with Checkpoint.read. The given generation is shown first, but neither logged nor
+     * checkpointed again.
+     * @param resumed latest generation of the run; its evaluator is shut down when evolution ends
+     */
+    public Evolution(Generation resumed) {
+        this(sizeOf(resumed), 0, resumed.getEvaluator(), resumed);
+    }
+
+    private static int sizeOf(Generation resumed) {
+        if (resumed == null) throw new IllegalArgumentException("Null pointer generation.");
+        return resumed.size();
+    }
+
+    private Evolution(int walkers, long seed, Evaluator evaluator, Generation resumed) {
+        if (walkers <= 0) throw new IllegalArgumentException("Generation must have at least one creature.");
+        if (evaluator == null) throw new IllegalArgumentException("Null pointer evaluator.");
+        this.walkers = walkers;
+        this.seed = seed;
+        this.evaluator = evaluator;
+        this.resumed = resumed;
+        thread = new Thread(this::run, "genalg-evolution");
+        recorderThread = new Thread(this::record, "genalg-recorder");
+        recorderThread.setDaemon(true);
+        recorderThread.setPriority(Thread.MIN_PRIORITY);
+    }
+
+    public SnapshotExchange getSnapshots() {
+        return snapshots;
+    }
+
+    /**
+     * @param log gets a record of every generation, null for none; must be set before evolution starts
+     */
+    public void setLog(GenerationLog log) {
+        this.log = log;
+    }
+
+    /**
+     * @param enabled whether the walk of the best creature is recorded for replay; off by default, since nothing
+     *                replays it without a view. Must be set before evolution starts.
+     */
+    public void setRecording(boolean enabled) {
+        this.recordingEnabled = enabled;
+    }
+
+    /**
+     * @param checkpoints gets every generation and is closed when evolution stops, null for none; must be set before
+     *                    evolution starts
+     */
+    public void setCheckpoints(CheckpointWriter checkpoints) {
+        this.checkpoints = checkpoints;
+    }
+
+    public void start() {
+        if (recordingEnabled) recorderThread.start();
+        thread.start();
+    }
+
+    /**
+     * Makes evolution stop after the current generation.
+     */
+    public void stop() {
+        stopped = true;
+    }
+
+    /**
+     * Waits until evolution has stopped.
+     * @throws IllegalStateException if evolution stopped because of an error
+     */
+    public void join() throws InterruptedException {
+        thread.join();
+        if (failure != null) throw new IllegalStateException("Evolution failed.", failure);
+    }
+
+    private void run() {
+        try {
+            long last = System.nanoTime();
+            Generation generation = resumed != null ? resumed : new Generation(walkers, seed, evaluator);
+            config = generation.getConfig();
+            long bestFingerprint = 0;
+            boolean first = true;
+            while (true) {
+                final Creature walker = generation.getWalkerAt(0);
+                final long fingerprint = walker.fingerprint();
+                if (recordingEnabled && (first || fingerprint != bestFingerprint)) {
+                    //a copy, since later generations recycle the creatures of this one
+                    toRecord.set(walker.clone());
+                    LockSupport.unpark(recorderThread);
+                }
+                bestFingerprint = fingerprint;
+                first = false;
+                final Recording recorded = recording;
+                final long now = System.nanoTime();
+                snapshots.publish(EvolutionSnapshot.of(generation, SNAPSHOT_CREATURES,
+                        now == last || generation == resumed ? 0 : 1e9 / (now - last),
+                        recorded != null && recorded.fingerprint == fingerprint ? recorded.trajectory : null));
+                last = now;
+                if (generation != resumed) {
+                    if (log != null) log.offer(generation);
+                    if (checkpoints != null) checkpoints.offer(generation);
+                }
+                if (stopped) return;
+                generation = new Generation(generation);
+            }
+        } catch (RuntimeException | Error e) {
+            failure = e;
+            throw e;
+        } finally {
+            evaluator.shutdown();
+            recorderThread.interrupt();
+            closeCheckpoints();
+        }
+    }
+
+    /**
+     * Waits for the last checkpoint; a failure to write it makes join() fail unless evolution failed already.
+     */
+    private void closeCheckpoints() {
+        if (checkpoints == null) return;
+        try {
+            checkpoints.close();
+        } catch (IOException e) {
+            if (failure == null) failure = e;
+        }
+    }
+
+    /**
+     * Body of the recorder thread: records the newest best creature until evolution ends.
+     */
+    private void record() {
+        TrajectoryRecorder recorder = null;
+        while (!Thread.currentThread().isInterrupted()) {
+            final Creature walker = toRecord.getAndSet(null);
+            if (walker == null) {
+                LockSupport.park(this);
+                continue;
+            }
+            if (recorder == null)
+                recorder = new TrajectoryRecorder(Math.max(1, config.getResolution() / REPLAY_SAMPLES_PER_CYCLE),
+                        REPLAY_SAMPLES);
+            recording = new Recording(walker.fingerprint(),
+                    recorder.record(walker, config.getTime(), config.getResolution()));
+        }
+    }
+
+    /**
+     * Trajectory of the creature with the given fingerprint.
+     */
+    private static final class Recording {
+        final long fingerprint;
+        final Trajectory trajectory;
+
+        Recording(long fingerprint, Trajectory trajectory) {
+            this.fingerprint = fingerprint;
+            this.trajectory = trajectory;
+        }
+    }
+}
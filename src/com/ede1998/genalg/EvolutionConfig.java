@@ -0,0 +1,184 @@
+package com.ede1998.genalg;
+
+import java.nio.ByteBuffer;
+import java.util.Locale;
+
+/**
+ * Immutable parameters of one run of evolution. DEFAULT holds the values the program has always used; the with-methods
+ * return a copy with one parameter changed, so a sweep can derive its settings from DEFAULT without recompiling.
+ */
+public final class EvolutionConfig {
+    public static final EvolutionConfig DEFAULT = new EvolutionConfig(100, Generation.DEATH_PERCENTAGE,
+            Generation.RANDOM_DEATH_PROBABILITY, Generation.TIME, Creature.RESOLUTION,
+            Creature.RANDOM_MUTATION_PROBABILITY, Creature.MUTATION_DIVERGENCE);
+    /**
+     * Size of a configuration written by write(ByteBuffer).
+     */
+    static final int BYTES = 3 * Integer.BYTES + 4 * Double.BYTES;
+    private final int population;
+    private final double deathPercentage;
+    private final double randomDeathProbability;
+    private final int time;
+    private final int resolution;
+    private final double randomMutationProbability;
+    private final double mutationDivergence;
+
+    /**
+     * @param population number of creatures of every generation
+     * @param deathPercentage share of every generation which dies and is replaced by mutated offspring
+     * @param randomDeathProbability probability of a creature to die regardless of its fitness, used by the default
+     *                               selection strategy
+     * @param time number of movement cycles every creature walks
+     * @param resolution number of clock ticks per movement cycle
+     * @param randomMutationProbability probability of a mutation to add or remove a node or muscle
+     * @param mutationDivergence standard deviation of the factor every parameter is multiplied with by a mutation
+     */
+    public EvolutionConfig(int population, double deathPercentage, double randomDeathProbability, int time,
+                           int resolution, double randomMutationProbability, double mutationDivergence) {
+        if (population <= 0) throw new IllegalArgumentException("Generation must have at least one creature.");
+        if (!(deathPercentage >= 0 && deathPercentage < 1))
+            throw new IllegalArgumentException("Death percentage must be at least 0 and less than 1.");
+        if (!(randomDeathProbability >= 0 && randomDeathProbability <= 1))
+            throw new IllegalArgumentException("Random death probability must be between 0 and 1.");
+        if (time <= 0) throw new IllegalArgumentException("Time to try must be greater than 0.");
+        if (resolution <= 0) throw new IllegalArgumentException("Resolution must be greater than 0.");
+        if (!(randomMutationProbability >= 0 && randomMutationProbability <= 1))
+            throw new IllegalArgumentException("Random mutation probability must be between 0 and 1.");
+        if (!(mutationDivergence >= 0)) throw new IllegalArgumentException("Mutation divergence must not be negative.");
+        this.population = population;
+        this.deathPercentage = deathPercentage;
+        this.randomDeathProbability = randomDeathProbability;
+        this.time = time;
+        this.resolution = resolution;
+        this.randomMutationProbability = randomMutationProbability;
+        this.mutationDivergence = mutationDivergence;
+    }
+
+    public int getPopulation() {
+        return population;
+    }
+
+    public double getDeathPercentage() {
+        return deathPercentage;
+    }
+
+    public double getRandomDeathProbability() {
+        return randomDeathProbability;
+    }
+
+    public int getTime() {
+        return time;
+    }
+
+    public int getResolution() {
+        return resolution;
+    }
+
+    public double getRandomMutationProbability() {
+        return randomMutationProbability;
+    }
+
+    public double getMutationDivergence() {
+        return mutationDivergence;
+    }
+
+    /**
+     * @return number of creatures of every generation which survive into the next one
+     */
+    public int getSurvivors() {
+        return Generation.survivors(population, deathPercentage);
+    }
+
+    /**
+     * Writes all parameters at the buffer's position, so read(ByteBuffer) gets the same configuration back.
+     */
+    void write(ByteBuffer out) {
+        out.putInt(population);
+        out.putDouble(deathPercentage);
+        out.putDouble(randomDeathProbability);
+        out.putInt(time);
+        out.putInt(resolution);
+        out.putDouble(randomMutationProbability);
+        out.putDouble(mutationDivergence);
+    }
+
+    /**
+     * Reads a configuration written by write(ByteBuffer).
+     * @throws IllegalArgumentException if a parameter is out of range
+     */
+    static EvolutionConfig read(ByteBuffer in) {
+        return new EvolutionConfig(in.getInt(), in.getDouble(), in.getDouble(), in.getInt(), in.getInt(),
+                in.getDouble(), in.getDouble());
+    }
+
+    public EvolutionConfig withPopulation(int population) {
+        return new EvolutionConfig(population, deathPercentage, randomDeathProbability, time, resolution,
+                randomMutationProbability, mutationDivergence);
+    }
+
+    public EvolutionConfig withDeathPercentage(double deathPercentage) {
+        return new EvolutionConfig(population, deathPercentage, randomDeathProbability, time, resolution,
+                randomMutationProbability, mutationDivergence);
+    }
+
+    public EvolutionConfig withRandomDeathProbability(double randomDeathProbability) {
+        return new EvolutionConfig(population, deathPercentage, randomDeathProbability, time, resolution,
+                randomMutationProbability, mutationDivergence);
+    }
+
+    public EvolutionConfig withTime(int time) {
+        return new EvolutionConfig(population, deathPercentage, randomDeathProbability, time, resolution,
+                randomMutationProbability, mutationDivergence);
+    }
+
+    public EvolutionConfig withResolution(int resolution) {
+        return new EvolutionConfig(population, deathPercentage, randomDeathProbability, time, resolution,
+                randomMutationProbability, mutationDivergence);
+    }
+
+    public EvolutionConfig withRandomMutationProbability(double randomMutationProbability) {
+        return new EvolutionConfig(population, deathPercentage, randomDeathProbability, time, resolution,
+                randomMutationProbability, mutationDivergence);
+    }
+
+    public EvolutionConfig withMutationDivergence(double mutationDivergence) {
+        return new EvolutionConfig(population, deathPercentage, randomDeathProbability, time, resolution,
+                randomMutationProbability, mutationDivergence);
+    }
+
+    /**
+     * Changes a parameter given by name, e.g. from the command line.
+     * @param parameter one of the names printed by toString(), e.g. "time" or "mutationDivergence"
+     * @param value new value of the parameter
+     */
+    public EvolutionConfig with(String parameter, String value) {
+        if (parameter == null) throw new IllegalArgumentException("Null pointer parameter.");
+        if (value == null) throw new IllegalArgumentException("Null pointer value.");
+        switch (parameter) {
+            case "population":
+                return withPopulation(Integer.parseInt(value));
+            case "deathPercentage":
+                return withDeathPercentage(Double.parseDouble(value));
+            case "randomDeathProbability":
+                return withRandomDeathProbability(Double.parseDouble(value));
+            case "time":
+                return withTime(Integer.parseInt(value));
+            case "resolution":
+                return withResolution(Integer.parseInt(value));
+            case "randomMutationProbability":
+                return withRandomMutationProbability(Double.parseDouble(value));
+            case "mutationDivergence":
+                return withMutationDivergence(Double.parseDouble(value));
+            default:
+                throw new IllegalArgumentException("Unknown parameter: " + parameter);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "population=%d deathPercentage=%s randomDeathProbability=%s time=%d "
+                        + "resolution=%d randomMutationProbability=%s mutationDivergence=%s", population,
+                deathPercentage, randomDeathProbability, time, resolution, randomMutationProbability,
+                mutationDivergence);
+    }
+}
@@ -0,0 +1,175 @@
+package com.ede1998.genalg;
+
+/**
+ * Immutable picture of a run after one generation: statistics of the generation and the shapes of its best creatures,
+ * copied into flat primitive arrays. Snapshots can be handed to other threads (e.g. the GUI) while evolution goes on
+ * and reuses its creatures. Creature 0 is the best one; the nodes and muscles of creature c are numbered from 0 like in
+ * the creature itself.
+ */
+public final class EvolutionSnapshot {
+    private final int generation;
+    private final int populationSize;
+    private final double meanFitness;
+    private final double generationsPerSecond;
+    private final long createdNanos;
+    private final double[] fitness;
+    private final int[] nodeStart;
+    private final int[] muscleStart;
+    private final double[] nodeX;
+    private final double[] nodeY;
+    private final double[] friction;
+    private final int[] firstNode;
+    private final int[] secondNode;
+    private final Trajectory bestTrajectory;
+
+    private EvolutionSnapshot(Generation generation, int creatures, double generationsPerSecond,
+                              Trajectory bestTrajectory) {
+        this.bestTrajectory = bestTrajectory;
+        this.generation = generation.getNumber();
+        this.populationSize = generation.size();
+        this.generationsPerSecond = generationsPerSecond;
+        this.createdNanos = System.nanoTime();
+        double sum = 0;
+        for (int i = 0; i < generation.size(); i++)
+            sum += generation.getWalkerAt(i).getFitness();
+        this.meanFitness = sum / generation.size();
+        final int count = Math.min(creatures, generation.size());
+        fitness = new double[count];
+        nodeStart = new int[count + 1];
+        muscleStart = new int[count + 1];
+        for (int c = 0; c < count; c++) {
+            final Creature creature = generation.getWalkerAt(c);
+            fitness[c] = creature.getFitness();
+            nodeStart[c + 1] = nodeStart[c] + creature.getNodeCount();
+            muscleStart[c + 1] = muscleStart[c] + creature.getMuscleCount();
+        }
+        nodeX = new double[nodeStart[count]];
+        nodeY = new double[nodeStart[count]];
+        friction = new double[nodeStart[count]];
+        firstNode = new int[muscleStart[count]];
+        secondNode = new int[muscleStart[count]];
+        for (int c = 0; c < count; c++) {
+            final Creature creature = generation.getWalkerAt(c);
+            for (int n = 0; n < creature.getNodeCount(); n++) {
+                nodeX[nodeStart[c] + n] = creature.getNode(n).getStartPositionX();
+                nodeY[nodeStart[c] + n] = creature.getNode(n).getStartPositionY();
+                friction[nodeStart[c] + n] = creature.getNode(n).getFriction();
+            }
+            for (int m = 0; m < creature.getMuscleCount(); m++) {
+                firstNode[muscleStart[c] + m] = creature.getConnections().getFirstNode(m);
+                secondNode[muscleStart[c] + m] = creature.getConnections().getSecondNode(m);
+            }
+        }
+    }
+
+    /**
+     * @param generation generation which has just been evaluated
+     * @param creatures number of best creatures whose shapes are copied
+     * @param generationsPerSecond recent speed of the run
+     */
+    public static EvolutionSnapshot of(Generation generation, int creatures, double generationsPerSecond) {
+        return of(generation, creatures, generationsPerSecond, null);
+    }
+
+    /**
+     * Same as of(Generation, int, double), with a recorded walk of the best creature.
+     * @param bestTrajectory walk of the best creature, null if it was not recorded
+     */
+    public static EvolutionSnapshot of(Generation generation, int creatures, double generationsPerSecond,
+                                       Trajectory bestTrajectory) {
+        if (generation == null) throw new IllegalArgumentException("Null pointer generation.");
+        if (creatures <= 0) throw new IllegalArgumentException("Snapshot must contain at least one creature.");
+        return new EvolutionSnapshot(generation, creatures, generationsPerSecond, bestTrajectory);
+    }
+
+    public int getGeneration() {
+        return generation;
+    }
+
+    public int getPopulationSize() {
+        return populationSize;
+    }
+
+    public double getBestFitness() {
+        return fitness[0];
+    }
+
+    public double getMeanFitness() {
+        return meanFitness;
+    }
+
+    public double getGenerationsPerSecond() {
+        return generationsPerSecond;
+    }
+
+    /**
+     * @return System.nanoTime() when the snapshot was taken
+     */
+    public long getCreatedNanos() {
+        return createdNanos;
+    }
+
+    /**
+     * @return number of creatures whose shapes are in the snapshot, at most the population size
+     */
+    public int getCreatureCount() {
+        return fitness.length;
+    }
+
+    public double getFitness(int creature) {
+        return fitness[creature];
+    }
+
+    public int getNodeCount(int creature) {
+        return nodeStart[creature + 1] - nodeStart[creature];
+    }
+
+    public int getMuscleCount(int creature) {
+        return muscleStart[creature + 1] - muscleStart[creature];
+    }
+
+    /**
+     * @return start x position of a node
+     */
+    public double getNodeX(int creature, int node) {
+        return nodeX[nodeStart[creature] + node];
+    }
+
+    /**
+     * @return start y position (height) of a node
+     */
+    public double getNodeY(int creature, int node) {
+        return nodeY[nodeStart[creature] + node];
+    }
+
+    public double getFriction(int creature, int node) {
+        return friction[nodeStart[creature] + node];
+    }
+
+    /**
+     * @return index of the first node the muscle connects
+     */
+    public int getFirstNode(int creature, int muscle) {
+        return firstNode[muscleStart[creature] + muscle];
+    }
+
+    /**
+     * @return index of the second node the muscle connects
+     */
+    public int getSecondNode(int creature, int muscle) {
+        return secondNode[muscleStart[creature] + muscle];
+    }
+
+    /**
+     * @return recorded walk of the best creature, null if there is none
+     */
+    public Trajectory getBestTrajectory() {
+        return bestTrajectory;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("generation %d: best %.3f, mean %.3f, %d creatures, %.2f generations/s",
+                generation, getBestFitness(), meanFitness, populationSize, generationsPerSecond);
+    }
+}
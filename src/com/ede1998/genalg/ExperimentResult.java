@@ -0,0 +1,103 @@
+package com.ede1998.genalg;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Immutable summary of one finished run of an ExperimentRunner.
+ */
+public final class ExperimentResult {
+    private final EvolutionConfig config;
+    private final long seed;
+    private final double[] bestFitness;
+    private final double meanFitness;
+    private final long evaluations;
+    private final long nanos;
+
+    /**
+     * @param evaluations number of creatures moved by the evaluator over all generations of the run
+     */
+    ExperimentResult(EvolutionConfig config, long seed, double[] bestFitness, Generation last, long evaluations,
+                     long nanos) {
+        this.config = config;
+        this.seed = seed;
+        this.bestFitness = bestFitness;
+        double sum = 0;
+        for (int i = 0; i < last.size(); i++)
+            sum += last.getWalkerAt(i).getFitness();
+        this.meanFitness = sum / last.size();
+        this.evaluations = evaluations;
+        this.nanos = nanos;
+    }
+
+    public EvolutionConfig getConfig() {
+        return config;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public int getGenerations() {
+        return bestFitness.length;
+    }
+
+    /**
+     * @return fitness of the best creature of the last generation
+     */
+    public double getBestFitness() {
+        return bestFitness[bestFitness.length - 1];
+    }
+
+    /**
+     * @return fitness of the best creature of every generation
+     */
+    public double[] getBestFitnessHistory() {
+        return Arrays.copyOf(bestFitness, bestFitness.length);
+    }
+
+    /**
+     * @return mean fitness of the last generation
+     */
+    public double getMeanFitness() {
+        return meanFitness;
+    }
+
+    /**
+     * @return number of creatures which were moved in all generations of the run, i.e. not found in the fitness cache
+     */
+    public long getEvaluations() {
+        return evaluations;
+    }
+
+    /**
+     * @return time from the start of the run to its end; runs share the processors, so this includes waiting
+     */
+    public long getNanos() {
+        return nanos;
+    }
+
+    /**
+     * @return names of the columns of toCsv()
+     */
+    public static String csvHeader() {
+        return "population,death_percentage,random_death_probability,time,resolution,random_mutation_probability,"
+                + "mutation_divergence,seed,generations,best_fitness,mean_fitness,evaluations,seconds";
+    }
+
+    /**
+     * @return the result as one line of comma separated values, without line break
+     */
+    public String toCsv() {
+        return String.format(Locale.ROOT, "%d,%s,%s,%d,%d,%s,%s,%d,%d,%s,%s,%d,%.3f", config.getPopulation(),
+                config.getDeathPercentage(), config.getRandomDeathProbability(), config.getTime(),
+                config.getResolution(), config.getRandomMutationProbability(), config.getMutationDivergence(), seed,
+                getGenerations(), getBestFitness(), meanFitness, evaluations, nanos / 1e9);
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "%s seed=%d: best %.3f, mean %.3f after %d generations", config, seed,
+                getBestFitness(), meanFitness, getGenerations());
+    }
+}
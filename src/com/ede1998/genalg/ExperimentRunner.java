@@ -0,0 +1,197 @@
+package com.ede1998.genalg;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Runs many independent evolutions, e.g. of a parameter sweep, at the same time in one JVM.
+ * All runs share one fork/join pool with a fixed number of workers. Every generation of a run is a task of its own,
+ * which queues the run's next generation when it is done; the pool works in FIFO order, so the runs take turns and
+ * share the processors fairly instead of one run holding a worker until it is finished. The creatures of a generation
+ * are moved as fork/join tasks in the same pool, so workers without a generation of their own help other runs.
+ * Runs do not share any state apart from the pool: each has its own configuration, random numbers and fitness cache,
+ * so the result of a run does not depend on what else runs. GenerationMetrics however are JVM-wide and count the
+ * generations of all runs together.
+ */
+public class ExperimentRunner {
+    private final ForkJoinPool pool;
+    private final Simulator simulator;
+
+    /**
+     * @param parallelism number of worker threads shared by all runs
+     */
+    public ExperimentRunner(int parallelism) {
+        this(parallelism, new ObjectSimulator());
+    }
+
+    /**
+     * @param parallelism number of worker threads shared by all runs
+     * @param simulator moves a single creature
+     */
+    public ExperimentRunner(int parallelism, Simulator simulator) {
+        if (parallelism <= 0) throw new IllegalArgumentException("Runner needs at least one thread.");
+        if (simulator == null) throw new IllegalArgumentException("Null pointer simulator.");
+        pool = new ForkJoinPool(parallelism, ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true);
+        this.simulator = simulator;
+    }
+
+    /**
+     * Starts a run.
+     * @param config parameters of the run
+     * @param seed master seed of the run
+     * @param generations number of generations to evaluate, including the first one
+     * @return completes with the summary of the run, or exceptionally if the run failed
+     */
+    public CompletableFuture<ExperimentResult> submit(EvolutionConfig config, long seed, int generations) {
+        if (config == null) throw new IllegalArgumentException("Null pointer config.");
+        if (generations <= 0) throw new IllegalArgumentException("Run must have at least one generation.");
+        final Run run = new Run(config, seed, generations);
+        pool.execute(new Step(run));
+        return run.result;
+    }
+
+    /**
+     * Runs all configurations with the same seed at the same time and waits until all of them are done.
+     * @return summaries in the order of the configurations
+     * @throws IllegalStateException if a run failed
+     */
+    public List<ExperimentResult> runAll(List<EvolutionConfig> configs, long seed, int generations)
+            throws InterruptedException {
+        if (configs == null) throw new IllegalArgumentException("Null pointer configs.");
+        final List<CompletableFuture<ExperimentResult>> runs = new ArrayList<>(configs.size());
+        for (EvolutionConfig config : configs)
+            runs.add(submit(config, seed, generations));
+        final List<ExperimentResult> results = new ArrayList<>(runs.size());
+        for (CompletableFuture<ExperimentResult> run : runs) {
+            try {
+                results.add(run.get());
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Experiment failed.", e.getCause());
+            }
+        }
+        return Collections.unmodifiableList(results);
+    }
+
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    /**
+     * Stops the workers once the runs already submitted are done.
+     */
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    /**
+     * State of one run between its generations. Only one step of a run exists at a time, so no locking is needed.
+     */
+    private final class Run {
+        private final EvolutionConfig config;
+        private final long seed;
+        private final double[] bestFitness;
+        private final Evaluator pooled = new ForkJoinEvaluator(pool, simulator);
+        private long evaluations;
+        //counts every creature the generations hand to the evaluator, i.e. every creature not in the fitness cache
+        private final Evaluator evaluator = (walkers, time, resolution) -> {
+            evaluations += walkers.size();
+            pooled.evaluate(walkers, time, resolution);
+        };
+        private final CompletableFuture<ExperimentResult> result = new CompletableFuture<>();
+        private Generation generation;
+        private long start;
+
+        Run(EvolutionConfig config, long seed, int generations) {
+            this.config = config;
+            this.seed = seed;
+            this.bestFitness = new double[generations];
+        }
+
+        /**
+         * Evaluates the next generation.
+         * @return true if the run is not finished yet
+         */
+        boolean advance() {
+            if (generation == null) {
+                start = System.nanoTime();
+                generation = new Generation(config, seed, evaluator);
+            } else {
+                generation = new Generation(generation);
+            }
+            bestFitness[generation.getNumber()] = generation.getWalkerAt(0).getFitness();
+            if (generation.getNumber() + 1 < bestFitness.length) return true;
+            //the evaluator is not shut down, it would shut down the shared pool
+            result.complete(new ExperimentResult(config, seed, bestFitness, generation, evaluations,
+                    System.nanoTime() - start));
+            return false;
+        }
+    }
+
+    private static final class Step extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final Run run;
+
+        Step(Run run) {
+            this.run = run;
+        }
+
+        @Override
+        protected void compute() {
+            try {
+                //forked, the next generation goes to the end of this worker's queue, behind the other runs
+                if (run.advance())
+                    new Step(run).fork();
+            } catch (RuntimeException | Error e) {
+                run.result.completeExceptionally(e);
+            }
+        }
+    }
+
+    /**
+     * Runs a sweep and prints the summaries as CSV.
+     * Arguments: --generations=20 --threads=all processors --seed=0 and any number of parameter=value1,value2,...
+     * with the parameter names of EvolutionConfig, e.g. time=5,10,15 mutationDivergence=0.1,0.2. Every combination of
+     * the values is run, all other parameters keep their defaults.
+     */
+    public static void main(String[] args) throws InterruptedException {
+        int generations = 20, threads = Runtime.getRuntime().availableProcessors();
+        long seed = 0;
+        List<EvolutionConfig> configs = Collections.singletonList(EvolutionConfig.DEFAULT);
+        for (String arg : args) {
+            final int split = arg.indexOf('=');
+            if (split < 0) throw new IllegalArgumentException("Invalid argument: " + arg);
+            final String name = arg.substring(0, split), value = arg.substring(split + 1);
+            switch (name) {
+                case "--generations":
+                    generations = Integer.parseInt(value);
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(value);
+                    break;
+                case "--seed":
+                    seed = Long.parseLong(value);
+                    break;
+                default:
+                    final List<EvolutionConfig> combined = new ArrayList<>();
+                    for (EvolutionConfig config : configs)
+                        for (String v : value.split(","))
+                            combined.add(config.with(name, v.trim()));
+                    configs = combined;
+            }
+        }
+        final ExperimentRunner runner = new ExperimentRunner(threads);
+        try {
+            final List<ExperimentResult> results = runner.runAll(configs, seed, generations);
+            System.out.println(ExperimentResult.csvHeader());
+            for (ExperimentResult result : results)
+                System.out.println(result.toCsv());
+        } finally {
+            runner.shutdown();
+        }
+    }
+}
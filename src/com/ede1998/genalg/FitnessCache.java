@@ -0,0 +1,89 @@
+package com.ede1998.genalg;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Remembers the fitness of recently evaluated genomes, keyed by Creature.fingerprint().
+ * Moving a creature is deterministic, so a creature whose genome was already evaluated (e.g. a survivor which was not
+ * mutated) does not have to move again. When full, the least recently used genome is forgotten.
+ * The cache is used by the generation thread only and is not thread-safe.
+ */
+public class FitnessCache {
+    public static final int DEFAULT_CAPACITY = 10000;
+    private final LinkedHashMap<Long, Double> fitness;
+    private boolean enabled = true;
+    private long hits;
+    private long misses;
+
+    public FitnessCache() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity maximum number of remembered genomes
+     */
+    public FitnessCache(int capacity) {
+        if (capacity <= 0) throw new IllegalArgumentException("Capacity must be greater than 0.");
+        fitness = new LinkedHashMap<Long, Double>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Double> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Sets the fitness of the creature if its genome is known.
+     * @param creature creature about to be evaluated
+     * @param fingerprint the creature's fingerprint
+     * @return true if the creature does not have to move
+     */
+    public boolean lookup(Creature creature, long fingerprint) {
+        if (!enabled) return false;
+        final Double known = fitness.get(fingerprint);
+        if (known == null) {
+            misses++;
+            return false;
+        }
+        hits++;
+        creature.setFitness(known);
+        return true;
+    }
+
+    /**
+     * Remembers the fitness of a creature which has just moved. Estimated fitness is not remembered, as the genome may
+     * be measured exactly next time.
+     */
+    public void store(Creature creature, long fingerprint) {
+        if (enabled && !creature.isFitnessEstimated())
+            fitness.put(fingerprint, creature.getFitness());
+    }
+
+    /**
+     * A disabled cache neither finds nor remembers anything, so every creature moves. Useful for validation runs.
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public int size() {
+        return fitness.size();
+    }
+
+    public void clear() {
+        fitness.clear();
+    }
+}
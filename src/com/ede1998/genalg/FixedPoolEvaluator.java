@@ -0,0 +1,77 @@
+package com.ede1998.genalg;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Moves the creatures on a fixed number of threads. Every thread repeatedly takes the next creature that has not been
+ * moved yet, so a thread that got a slow creature simply takes fewer of them.
+ */
+public class FixedPoolEvaluator implements Evaluator {
+    private final ExecutorService pool;
+    private final int threads;
+    private final Simulator simulator;
+
+    /**
+     * @param threads number of worker threads
+     */
+    public FixedPoolEvaluator(int threads) {
+        this(threads, new ObjectSimulator());
+    }
+
+    /**
+     * @param threads number of worker threads
+     * @param simulator moves a single creature
+     */
+    public FixedPoolEvaluator(int threads, Simulator simulator) {
+        if (threads <= 0) throw new IllegalArgumentException("Thread count must be greater than 0.");
+        if (simulator == null) throw new IllegalArgumentException("Null pointer simulator.");
+        this.threads = threads;
+        this.simulator = simulator;
+        final AtomicInteger threadNumber = new AtomicInteger();
+        pool = Executors.newFixedThreadPool(threads, (Runnable r) -> {
+            Thread t = new Thread(r, "genalg-evaluator-" + threadNumber.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    @Override
+    public void evaluate(List<Creature> walkers, int time, int resolution) {
+        final AtomicInteger next = new AtomicInteger();
+        final int workers = Math.min(threads, walkers.size());
+        List<Future<?>> running = new ArrayList<>(workers);
+        for (int i = 0; i < workers; i++) {
+            running.add(pool.submit(() -> {
+                int index;
+                while ((index = next.getAndIncrement()) < walkers.size())
+                    simulator.simulate(walkers.get(index), time, resolution);
+            }));
+        }
+        for (Future<?> f : running) {
+            try {
+                f.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for creatures to move.", e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        pool.shutdown();
+    }
+}
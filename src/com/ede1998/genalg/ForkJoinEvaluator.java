@@ -0,0 +1,99 @@
+package com.ede1998.genalg;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Moves the creatures on a fork/join pool. The list is split in halves down to single creatures, so idle workers
+ * steal the remaining halves from busy ones and creatures with many muscles do not hold up the others.
+ */
+public class ForkJoinEvaluator implements Evaluator {
+    private final ForkJoinPool pool;
+    private final Simulator simulator;
+
+    /**
+     * @param parallelism number of worker threads
+     */
+    public ForkJoinEvaluator(int parallelism) {
+        this(new ForkJoinPool(parallelism), new ObjectSimulator());
+    }
+
+    /**
+     * @param parallelism number of worker threads
+     * @param simulator moves a single creature
+     */
+    public ForkJoinEvaluator(int parallelism, Simulator simulator) {
+        this(new ForkJoinPool(parallelism), simulator);
+    }
+
+    /**
+     * Uses one worker thread per available processor.
+     */
+    public ForkJoinEvaluator() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param pool pool to run on, e.g. one shared with other evaluators
+     * @param simulator moves a single creature
+     */
+    public ForkJoinEvaluator(ForkJoinPool pool, Simulator simulator) {
+        if (pool == null) throw new IllegalArgumentException("Null pointer pool.");
+        if (simulator == null) throw new IllegalArgumentException("Null pointer simulator.");
+        this.pool = pool;
+        this.simulator = simulator;
+    }
+
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    @Override
+    public void evaluate(List<Creature> walkers, int time, int resolution) {
+        if (walkers.isEmpty()) return;
+        final MoveTask task = new MoveTask(walkers, simulator, time, resolution, 0, walkers.size());
+        //a worker of the pool (e.g. running an experiment) forks into its own queue instead of submitting from outside
+        if (ForkJoinTask.getPool() == pool)
+            task.invoke();
+        else
+            pool.invoke(task);
+    }
+
+    @Override
+    public void shutdown() {
+        if (pool != ForkJoinPool.commonPool())
+            pool.shutdown();
+    }
+
+    private static class MoveTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final List<Creature> walkers;
+        private final Simulator simulator;
+        private final int time;
+        private final int resolution;
+        private final int from;
+        private final int to;
+
+        MoveTask(List<Creature> walkers, Simulator simulator, int time, int resolution, int from, int to) {
+            this.walkers = walkers;
+            this.simulator = simulator;
+            this.time = time;
+            this.resolution = resolution;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                simulator.simulate(walkers.get(from), time, resolution);
+                return;
+            }
+            final int mid = (from + to) >>> 1;
+            invokeAll(new MoveTask(walkers, simulator, time, resolution, from, mid),
+                    new MoveTask(walkers, simulator, time, resolution, mid, to));
+        }
+    }
+}
@@ -3,29 +3,84 @@ package com.ede1998.genalg; /**
  */
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
 
 public class Generation {
     private ArrayList<Creature> walkers;
-    private static final int TIME = 15;
-    private static final double DEATH_PERCENTAGE = 0.2;
-    private static final double RANDOM_DEATH_PROBABILITY = 0.02;
+    private final Evaluator evaluator;
+    private final RandomNumberGenerator random;
+    private final FitnessCache cache;
+    private final SelectionStrategy selection;
+    private final EvolutionConfig config;
+    private final int number;
+    private double[] scores;
+    //creatures of the generation before this one, reused by the next generation
+    private ArrayList<Creature> spare;
+    private boolean walkersDonated;
+    //number of offspring per kind of structural mutation
+    private final int[] mutations = new int[Mutation.values().length];
+    //defaults of EvolutionConfig.DEFAULT, everything else reads them from the configuration of the run
+    static final int TIME = 15;
+    static final double DEATH_PERCENTAGE = 0.2;
+    static final double RANDOM_DEATH_PROBABILITY = 0.02;
+    private static final GenerationMetrics METRICS = GenerationMetrics.getInstance();
+    private static final Comparator<Creature> BEST_FIRST = (a, b) -> Double.compare(score(b), score(a));
 
     /**
      * This constructor should be called for all generations except the first.
-     * It takes as parameter the previous generation and uses a copy of its creatures to find the best creatures and mutate them. Bad creatures die. 
+     * It takes as parameter the previous generation and uses a copy of its creatures to find the best creatures and mutate them. Bad creatures die.
+     * The size of the population stays the same.
      * Afterwards it also processes and evaluates this new generation (i.e. itself).
+     * The population is double buffered: the new creatures are copied in place into the creatures of the generation
+     * before the previous one, so apart from the first two generations no creatures are allocated. That generation
+     * must therefore no longer be used; only the previous generation stays valid.
      *
      * @param prevGen The previous generation of creatures.
      */
     public Generation(Generation prevGen) {
+        this(prevGen, Collections.emptyList());
+    }
+
+    /**
+     * Same as Generation(Generation), but creatures from elsewhere (e.g. another island) take the place of some of the
+     * new mutated creatures. The immigrants are copied, so they stay unchanged.
+     *
+     * @param prevGen The previous generation of creatures.
+     * @param immigrants Creatures joining this generation; if there are more than creatures die, the rest is ignored.
+     */
+    public Generation(Generation prevGen, List<Creature> immigrants) {
         if (prevGen == null) throw new IllegalArgumentException("Null pointer generation.");
+        if (immigrants == null) throw new IllegalArgumentException("Null pointer immigrants.");
         if (prevGen == this) throw new IllegalArgumentException("Previous generation is the current gen.");
-        walkers = new ArrayList<>(prevGen.walkers.size());
-        prevGen.walkers.forEach( (Creature w) -> walkers.add(w.clone()));
-        naturalSelect();
-        mutate();
+        final long allocated = METRICS.threadAllocatedBytes();
+        evaluator = prevGen.evaluator;
+        random = prevGen.random;
+        cache = prevGen.cache;
+        selection = prevGen.selection;
+        config = prevGen.config;
+        number = prevGen.number + 1;
+        final int population = prevGen.walkers.size();
+        final int survivors = survivors(population, config.getDeathPercentage());
+        walkers = prevGen.spare != null ? prevGen.spare : new ArrayList<>(population);
+        prevGen.spare = null;
+        if (!prevGen.walkersDonated) {
+            spare = prevGen.walkers;
+            prevGen.walkersDonated = true;
+        }
+        final int deaths = population - survivors;
+        final int arrivals = Math.min(immigrants.size(), deaths);
+        long mark = naturalSelect(prevGen, survivors);
+        mutate(survivors, deaths - arrivals);
+        for (int i = 0; i < arrivals; i++)
+            copyInto(population - arrivals + i, immigrants.get(i));
+        while (walkers.size() > population)
+            walkers.remove(walkers.size() - 1);
+        METRICS.end(GenerationMetrics.Phase.MUTATE, mark);
         doGeneration();
+        METRICS.generationDone(allocated);
     }
 
     /**
@@ -33,70 +88,283 @@ public class Generation {
      * @param walkersToMake Specifies the number of creatures the generation has.
      */
     public Generation(int walkersToMake) {
-        createFromScratch(walkersToMake);
+        this(walkersToMake, System.nanoTime(), new SequentialEvaluator());
+    }
+
+    /**
+     *  This constructor should be called for the first generation only as it creates all creatures randomly. Then these creatures are processed and evaluated.
+     *  All following generations evaluate their creatures with the same evaluator and draw their random numbers
+     *  from the same master generator, so two runs with the same seed produce the same generations.
+     * @param walkersToMake Specifies the number of creatures the generation has.
+     * @param seed Master seed of all random numbers of the run.
+     * @param evaluator Moves the creatures, either sequentially or on several threads.
+     */
+    public Generation(int walkersToMake, long seed, Evaluator evaluator) {
+        this(walkersToMake, seed, evaluator, new FitnessCache());
+    }
+
+    /**
+     *  This constructor should be called for the first generation only as it creates all creatures randomly. Then these creatures are processed and evaluated.
+     *  All following generations share the evaluator, the master random number generator and the fitness cache.
+     * @param walkersToMake Specifies the number of creatures the generation has.
+     * @param seed Master seed of all random numbers of the run.
+     * @param evaluator Moves the creatures, either sequentially or on several threads.
+     * @param cache Fitness of known genomes, so creatures which did not change are not moved again.
+     */
+    public Generation(int walkersToMake, long seed, Evaluator evaluator, FitnessCache cache) {
+        this(walkersToMake, seed, evaluator, cache, defaultSelection(EvolutionConfig.DEFAULT));
+    }
+
+    /**
+     *  This constructor should be called for the first generation only as it creates all creatures randomly. Then these creatures are processed and evaluated.
+     *  All following generations share the evaluator, the master random number generator, the fitness cache and the selection strategy.
+     * @param walkersToMake Specifies the number of creatures the generation has.
+     * @param seed Master seed of all random numbers of the run.
+     * @param evaluator Moves the creatures, either sequentially or on several threads.
+     * @param cache Fitness of known genomes, so creatures which did not change are not moved again.
+     * @param selection Decides which creatures survive into the next generation.
+     */
+    public Generation(int walkersToMake, long seed, Evaluator evaluator, FitnessCache cache, SelectionStrategy selection) {
+        this(EvolutionConfig.DEFAULT.withPopulation(walkersToMake), seed, evaluator, cache, selection);
+    }
+
+    /**
+     *  This constructor should be called for the first generation only as it creates all creatures randomly. Then these creatures are processed and evaluated.
+     *  The run uses a fresh fitness cache and truncation selection with the random death probability of the configuration.
+     * @param config Parameters of the run, shared by all following generations.
+     * @param seed Master seed of all random numbers of the run.
+     * @param evaluator Moves the creatures, either sequentially or on several threads.
+     */
+    public Generation(EvolutionConfig config, long seed, Evaluator evaluator) {
+        this(config, seed, evaluator, new FitnessCache(), defaultSelection(config));
+    }
+
+    /**
+     * @return truncation selection with the random death probability of the configuration
+     */
+    static SelectionStrategy defaultSelection(EvolutionConfig config) {
+        if (config == null) throw new IllegalArgumentException("Null pointer config.");
+        return new TruncationSelection(config.getRandomDeathProbability());
+    }
+
+    /**
+     *  This constructor should be called for the first generation only as it creates all creatures randomly. Then these creatures are processed and evaluated.
+     *  All other constructors of a first generation end up here. All following generations share the configuration, the
+     *  evaluator, the master random number generator, the fitness cache and the selection strategy.
+     * @param config Parameters of the run, e.g. the number of creatures and how long they walk.
+     * @param seed Master seed of all random numbers of the run.
+     * @param evaluator Moves the creatures, either sequentially or on several threads.
+     * @param cache Fitness of known genomes, so creatures which did not change are not moved again. Must not be shared
+     *              with runs which move the creatures for a different time or resolution.
+     * @param selection Decides which creatures survive into the next generation.
+     */
+    public Generation(EvolutionConfig config, long seed, Evaluator evaluator, FitnessCache cache, SelectionStrategy selection) {
+        if (config == null) throw new IllegalArgumentException("Null pointer config.");
+        if (evaluator == null) throw new IllegalArgumentException("Null pointer evaluator.");
+        if (cache == null) throw new IllegalArgumentException("Null pointer cache.");
+        if (selection == null) throw new IllegalArgumentException("Null pointer selection.");
+        this.config = config;
+        this.evaluator = evaluator;
+        this.random = new RandomNumberGenerator(seed);
+        this.cache = cache;
+        this.selection = selection;
+        this.number = 0;
+        final long allocated = METRICS.threadAllocatedBytes();
+        createFromScratch(config.getPopulation());
         doGeneration();
+        METRICS.generationDone(allocated);
+    }
+
+    /**
+     * Continues a run, e.g. from a checkpoint. The creatures are not moved again, they keep their fitness.
+     * @param config parameters of the run, with the population being the number of creatures
+     * @param number number of the generation in the run
+     * @param walkers creatures of the generation, which have already moved
+     * @param random master generator in the state it had right after this generation
+     */
+    Generation(EvolutionConfig config, int number, List<Creature> walkers, RandomNumberGenerator random,
+               Evaluator evaluator, FitnessCache cache, SelectionStrategy selection) {
+        if (config == null) throw new IllegalArgumentException("Null pointer config.");
+        if (walkers == null || walkers.isEmpty()) throw new IllegalArgumentException("Generation must have at least one creature.");
+        if (walkers.size() != config.getPopulation())
+            throw new IllegalArgumentException("Number of creatures differs from the population of the config.");
+        if (random == null) throw new IllegalArgumentException("Null pointer random.");
+        if (evaluator == null) throw new IllegalArgumentException("Null pointer evaluator.");
+        if (cache == null) throw new IllegalArgumentException("Null pointer cache.");
+        if (selection == null) throw new IllegalArgumentException("Null pointer selection.");
+        this.number = number;
+        this.config = config;
+        this.walkers = new ArrayList<>(walkers);
+        this.random = random;
+        this.evaluator = evaluator;
+        this.cache = cache;
+        this.selection = selection;
+        rank();
     }
 
     /**
-     * This method processes all creatures and afterwards evaluates them sorting the creatures by their respective travel distance.
+     * This method processes all creatures and afterwards evaluates them sorting the creatures by their respective travel distance,
+     * the best creature first. The fitness is then read once into the score array which the selection works on.
      */
     private void doGeneration() {
+        long mark = METRICS.start();
         walkers.forEach((w)->w.reset());
+        mark = METRICS.end(GenerationMetrics.Phase.RESET, mark);
         live();
-        Collections.sort(walkers);
+        mark = METRICS.end(GenerationMetrics.Phase.LIVE, mark);
+        rank();
+        METRICS.end(GenerationMetrics.Phase.RANK, mark);
+    }
+
+    private void rank() {
+        walkers.sort(BEST_FIRST);
+        scores = new double[walkers.size()];
+        for (int i = 0; i < scores.length; i++)
+            scores[i] = score(walkers.get(i));
+    }
+
+    /**
+     * @param deathPercentage share of the population which dies, see EvolutionConfig
+     * @return number of creatures of a generation of the given size which survive into the next generation
+     */
+    static int survivors(int population, double deathPercentage) {
+        return Math.max(1, population - (int) Math.round(deathPercentage * population));
+    }
+
+    /**
+     * Fitness used for ranking. Creatures whose fitness is not a number count as the worst ones.
+     */
+    private static double score(Creature creature) {
+        final double fitness = creature.getFitness();
+        return Double.isNaN(fitness) ? Double.NEGATIVE_INFINITY : fitness;
     }
-    
-    
+
+    /**
+     * @param index rank of the creature, 0 is the best one
+     */
     public Creature getWalkerAt(int index) {
         return walkers.get(index);
     }
 
+    public int size() {
+        return walkers.size();
+    }
+
+    /**
+     * @return number of this generation in the run, the first generation is 0
+     */
+    public int getNumber() {
+        return number;
+    }
+
+    /**
+     * @return number of offspring of this generation which were mutated in the given way
+     */
+    public int getMutations(Mutation mutation) {
+        return mutations[mutation.ordinal()];
+    }
+
+    RandomNumberGenerator getRandom() {
+        return random;
+    }
+
+    Evaluator getEvaluator() {
+        return evaluator;
+    }
+
+    public EvolutionConfig getConfig() {
+        return config;
+    }
+
+    public FitnessCache getFitnessCache() {
+        return cache;
+    }
+
     /**
      * A new generation is randomly generated from void. A true creation ex nihilo.
      * @param walkersToMake Specifies the number of creatures the generation has.
      */
     private void createFromScratch(int walkersToMake) {
         walkers = new ArrayList<Creature>(walkersToMake);
-        walkers.forEach((Creature c) -> c = new Creature());
+        for (int i = 0; i < walkersToMake; i++)
+            walkers.add(new Creature(random.split()));
     }
 
-    private void live() {//TODO add threads
-       walkers.forEach((w)-> w.move(TIME));
+    /**
+     * Lets all creatures walk. Creatures whose genome is in the fitness cache keep their start positions and only get
+     * their fitness from the cache.
+     */
+    private void live() {
+        if (!cache.isEnabled()) {
+            evaluator.evaluate(walkers, config.getTime(), config.getResolution());
+            METRICS.countEvaluations(walkers.size(), (long) config.getTime() * config.getResolution());
+            return;
+        }
+        ArrayList<Creature> unknown = new ArrayList<>();
+        long[] fingerprints = new long[walkers.size()];
+        for (Creature w : walkers) {
+            final long fingerprint = w.fingerprint();
+            if (!cache.lookup(w, fingerprint)) {
+                fingerprints[unknown.size()] = fingerprint;
+                unknown.add(w);
+            }
+        }
+        evaluator.evaluate(unknown, config.getTime(), config.getResolution());
+        METRICS.countEvaluations(unknown.size(), (long) config.getTime() * config.getResolution());
+        for (int i = 0; i < unknown.size(); i++)
+            cache.store(unknown.get(i), fingerprints[i]);
     }
 
     /**
-     *  This method kills a percentage of creatures specified by com.ede1998.genalg.Generation.DEATH_PERCENTAGE.
-     *  Mostly, the worst performing creatures are killed but a couple of creatures also die randomly. This behaviour is controlled by the com.ede1998.genalg.Generation.RANDOM_DEATH_PROBABILITY constant.
+     *  This method copies the creatures of the previous generation which survive, keeping their order, so the best survivor comes first.
+     *  Which creatures survive is decided by the selection strategy, by default mostly the best ones while a couple of creatures also die randomly.
+     *  This behaviour is controlled by the random death probability of the configuration.
+     * @return time stamp of the end of the copying, see GenerationMetrics.end(Phase, long)
      */
-    private void naturalSelect() {
-        int deathCount = 0;
-        final int totalDead = (int) Math.round(DEATH_PERCENTAGE * walkers.size());
-        //kill some random creatures
-        for (int i = 0; i < walkers.size(); i++) {
-            if (RandomNumberGenerator.randBool(RANDOM_DEATH_PROBABILITY)){
-                deathCount++;
-                walkers.remove(i);
-                if (deathCount >= totalDead)
-                    break;
+    private long naturalSelect(Generation prevGen, int survivors) {
+        long mark = METRICS.start();
+        final int[] alive = selection.select(prevGen.scores, survivors, random);
+        Arrays.sort(alive);
+        mark = METRICS.end(GenerationMetrics.Phase.SELECT, mark);
+        for (int i = 0; i < alive.length; i++)
+            copyInto(i, prevGen.walkers.get(alive[i]));
+        return METRICS.end(GenerationMetrics.Phase.COPY, mark);
+    }
+
+    /**
+     * For each creature that died in naturalSelect() and is not replaced by an immigrant, a new creature is created. It a clone of another already existing creature but its parameters are slightly altered.
+     * The best survivors become parents first.
+     */
+    private void mutate(int survivors, int offspring) {
+        for (int i = 0; i < offspring; i++) {
+            final Creature parent = walkers.get(i % survivors);
+            final Creature child = copyInto(survivors + i, parent);
+            try {
+                final Mutation mutation = child.mutate(random.split(), config.getRandomMutationProbability(),
+                        config.getMutationDivergence());
+                mutations[mutation.ordinal()]++;
+            } catch (CrippledCreatureException e) {
+                //a half removed node or muscle cannot walk, the child stays a copy of its parent instead
+                child.copyFrom(parent);
+                METRICS.countCrippledCreature();
             }
         }
-        //kill worst creatures
-        for (int i = walkers.size() - 1; deathCount <= totalDead; i--) {
-            deathCount++;
-            walkers.remove(i);
-        }
     }
 
     /**
-     * For each creature that died from naturalSelect(), a new creature is created. It a clone of another already existing creature but its parameters are slightly altered.
+     * Copies the creature into the recycled creature at the given index, or clones it if there is none yet.
+     * @return the copy
      */
-    private void mutate() {
-        final int totalDead = (int) Math.round(DEATH_PERCENTAGE * walkers.size());
-        Creature c;
-        for (int i = 0; i <= totalDead; i++) {
-            c = walkers.get(i).clone();
-            c.mutate();
-            walkers.add(c);
+    private Creature copyInto(int index, Creature original) {
+        if (index < walkers.size()) {
+            final Creature copy = walkers.get(index);
+            copy.copyFrom(original);
+            METRICS.countCopy(false);
+            return copy;
         }
+        final Creature copy = original.clone();
+        walkers.add(copy);
+        METRICS.countCopy(true);
+        return copy;
     }
 }
@@ -0,0 +1,174 @@
+package com.ede1998.genalg;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Appends a GenerationRecord per generation to a CSV file on a background thread, so evolution never waits for the
+ * disk. The record is made on the calling thread, which is fast and necessary because generations reuse their
+ * creatures, and put into a bounded queue; if the disk falls so far behind that the queue is full, the record is
+ * dropped instead of blocking.
+ * The file is flushed whenever the writer has caught up and at least every flush interval, so "tail -f" shows every
+ * generation soon after it is done. When the file grows beyond the maximum size, it is renamed to name.1.csv,
+ * name.2.csv and so on, and a new file with the original name is started; "tail -F" follows it. An existing file is
+ * continued.
+ */
+public class GenerationLog {
+    public static final int DEFAULT_QUEUE_CAPACITY = 1024;
+    public static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+    public static final long DEFAULT_FLUSH_MILLIS = 1000;
+    private final Path file;
+    private final long maxBytes;
+    private final long flushMillis;
+    private final BlockingQueue<GenerationRecord> queue;
+    private final Thread writer;
+    private final AtomicReference<IOException> failure = new AtomicReference<>();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private volatile boolean closed;
+    private long lastOffer;
+    private BufferedWriter out;
+    private long bytes;
+    private int rotations;
+
+    /**
+     * Logs to the file with the default queue capacity, maximum file size and flush interval.
+     */
+    public GenerationLog(Path file) {
+        this(file, DEFAULT_QUEUE_CAPACITY, DEFAULT_MAX_BYTES, DEFAULT_FLUSH_MILLIS);
+    }
+
+    /**
+     * @param file CSV file, which should end with .csv
+     * @param queueCapacity number of records which may wait for the disk
+     * @param maxBytes size from which the file is rotated
+     * @param flushMillis maximum time a written record may stay in the buffer
+     */
+    public GenerationLog(Path file, int queueCapacity, long maxBytes, long flushMillis) {
+        if (file == null) throw new IllegalArgumentException("Null pointer file.");
+        if (queueCapacity <= 0) throw new IllegalArgumentException("Queue capacity must be greater than 0.");
+        if (maxBytes <= 0) throw new IllegalArgumentException("Maximum file size must be greater than 0.");
+        if (flushMillis <= 0) throw new IllegalArgumentException("Flush interval must be greater than 0.");
+        this.file = file;
+        this.maxBytes = maxBytes;
+        this.flushMillis = flushMillis;
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        writer = new Thread(this::write, "genalg-log");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Called after every generation by the thread which builds the generations. Never blocks.
+     */
+    public void offer(Generation generation) {
+        final long now = System.nanoTime();
+        final GenerationRecord record = new GenerationRecord(generation, lastOffer == 0 ? 0 : now - lastOffer);
+        lastOffer = now;
+        if (closed || failure.get() != null || !queue.offer(record))
+            dropped.incrementAndGet();
+    }
+
+    private void write() {
+        try {
+            open();
+            long lastFlush = System.nanoTime();
+            while (!closed || !queue.isEmpty()) {
+                final GenerationRecord record = queue.poll(flushMillis, TimeUnit.MILLISECONDS);
+                if (record != null) {
+                    if (bytes >= maxBytes) rotate();
+                    final String line = record.toCsv();
+                    out.write(line);
+                    out.newLine();
+                    bytes += line.length() + System.lineSeparator().length();
+                    written.incrementAndGet();
+                }
+                final long now = System.nanoTime();
+                if (queue.isEmpty() || now - lastFlush >= TimeUnit.MILLISECONDS.toNanos(flushMillis)) {
+                    out.flush();
+                    lastFlush = now;
+                }
+            }
+        } catch (IOException e) {
+            failure.set(e);
+        } catch (InterruptedException e) {
+            failure.set(new IOException("Interrupted while writing the generation log.", e));
+        } finally {
+            if (out != null) {
+                try {
+                    out.close();
+                } catch (IOException e) {
+                    failure.compareAndSet(null, e);
+                }
+            }
+        }
+    }
+
+    private void open() throws IOException {
+        bytes = Files.exists(file) ? Files.size(file) : 0;
+        out = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        if (bytes == 0) {
+            final String header = GenerationRecord.csvHeader();
+            out.write(header);
+            out.newLine();
+            bytes = header.length() + System.lineSeparator().length();
+        }
+    }
+
+    private void rotate() throws IOException {
+        out.close();
+        Path target;
+        do {
+            target = rotated(++rotations);
+        } while (Files.exists(target));
+        Files.move(file, target, StandardCopyOption.ATOMIC_MOVE);
+        open();
+    }
+
+    /**
+     * @return name of the n-th rotated file, e.g. run.3.csv for run.csv
+     */
+    private Path rotated(int n) {
+        final String name = file.getFileName().toString();
+        final int dot = name.lastIndexOf('.');
+        final String rotated = dot > 0 ? name.substring(0, dot) + "." + n + name.substring(dot) : name + "." + n;
+        return file.resolveSibling(rotated);
+    }
+
+    public long getWritten() {
+        return written.get();
+    }
+
+    /**
+     * @return number of records which were dropped because the queue was full, the log was closed or writing failed
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    /**
+     * Writes all records offered so far and stops the background thread.
+     * @throws IOException the error which stopped writing, if any
+     */
+    public void close() throws IOException {
+        closed = true;
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while writing the generation log.", e);
+        }
+        final IOException e = failure.get();
+        if (e != null) throw e;
+    }
+}
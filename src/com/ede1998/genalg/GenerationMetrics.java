@@ -0,0 +1,313 @@
+package com.ede1998.genalg;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Timers and counters around the phases of Generation, shared by all generations of the JVM (e.g. of all islands).
+ * There is only one instance per JVM, so the generations of runs going on at the same time, e.g. the runs of an
+ * ExperimentRunner, are counted together; to measure a single run, run it alone and reset the metrics before.
+ * Disabled by default; then every phase only costs one read of a volatile flag. When enabled, every phase costs two
+ * calls of System.nanoTime() and a few atomic additions, which is nothing compared to moving a generation.
+ * Durations are counted in a histogram with one bucket per power of two nanoseconds.
+ * All updates are lock-free, so several threads can build generations at the same time.
+ * Allocations are only measured on the thread which builds a generation (selection, copying, mutation, ranking and
+ * the fitness cache), not on the threads of the evaluator, which move the creatures.
+ */
+public final class GenerationMetrics implements GenerationMetricsMBean {
+    /**
+     * Phases of a generation, in the order they happen.
+     */
+    public enum Phase {
+        /**
+         * Selection strategy deciding which creatures survive.
+         */
+        SELECT,
+        /**
+         * Copying the survivors into the new generation.
+         */
+        COPY,
+        /**
+         * Copying and mutating the offspring.
+         */
+        MUTATE,
+        /**
+         * Putting all creatures back to their start positions.
+         */
+        RESET,
+        /**
+         * Looking up the fitness cache and moving the creatures.
+         */
+        LIVE,
+        /**
+         * Sorting the creatures by fitness.
+         */
+        RANK
+    }
+
+    public static final String OBJECT_NAME = "com.ede1998.genalg:type=GenerationMetrics";
+    private static final int BUCKETS = 64;
+    private static final Phase[] PHASES = Phase.values();
+    //after PHASES, which the constructor needs
+    private static final GenerationMetrics INSTANCE = new GenerationMetrics();
+
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    private volatile boolean enabled = Boolean.getBoolean("genalg.metrics");
+    private final LongAdder[] counts = new LongAdder[PHASES.length];
+    private final LongAdder[] totals = new LongAdder[PHASES.length];
+    private final AtomicLong[] maxima = new AtomicLong[PHASES.length];
+    private final AtomicLongArray histograms = new AtomicLongArray(PHASES.length * BUCKETS);
+    private final LongAdder generations = new LongAdder();
+    private final LongAdder evaluations = new LongAdder();
+    private final LongAdder creatureTicks = new LongAdder();
+    private final LongAdder copies = new LongAdder();
+    private final LongAdder creatureAllocations = new LongAdder();
+    private final LongAdder generationThreadBytes = new LongAdder();
+    private final LongAdder crippledCreatures = new LongAdder();
+
+    private GenerationMetrics() {
+        for (int i = 0; i < PHASES.length; i++) {
+            counts[i] = new LongAdder();
+            totals[i] = new LongAdder();
+            maxima[i] = new AtomicLong();
+        }
+    }
+
+    /**
+     * @return the metrics of this JVM; enabled from the start if the system property genalg.metrics is true
+     */
+    public static GenerationMetrics getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Makes the metrics visible to JMX clients under OBJECT_NAME. Registering more than once does nothing.
+     */
+    public void register() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(OBJECT_NAME));
+        } catch (InstanceAlreadyExistsException e) {
+            //already registered
+        } catch (JMException e) {
+            throw new IllegalStateException("Metrics could not be registered.", e);
+        }
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Starts timing a phase.
+     * @return time stamp to pass to end(Phase, long), 0 if the metrics are disabled
+     */
+    long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Ends timing a phase.
+     * @param start time stamp from start() or from end() of the phase before
+     * @return time stamp at which the next phase starts, 0 if the metrics are disabled
+     */
+    long end(Phase phase, long start) {
+        if (start == 0) return start();
+        final long now = System.nanoTime();
+        final long nanos = Math.max(0, now - start);
+        final int i = phase.ordinal();
+        counts[i].increment();
+        totals[i].add(nanos);
+        maxima[i].accumulateAndGet(nanos, Math::max);
+        histograms.incrementAndGet(i * BUCKETS + BUCKETS - Long.numberOfLeadingZeros(nanos));
+        return now;
+    }
+
+    /**
+     * @return bytes allocated by the current thread so far, 0 if the metrics are disabled or the JVM does not tell
+     */
+    long threadAllocatedBytes() {
+        return enabled && threads instanceof com.sun.management.ThreadMXBean
+                ? ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(Thread.currentThread().getId())
+                : 0;
+    }
+
+    /**
+     * Counts a finished generation.
+     * @param allocatedBefore result of threadAllocatedBytes() on the same thread before the generation was built
+     */
+    void generationDone(long allocatedBefore) {
+        if (!enabled) return;
+        generations.increment();
+        if (allocatedBefore > 0)
+            generationThreadBytes.add(threadAllocatedBytes() - allocatedBefore);
+    }
+
+    /**
+     * @param ticks clock ticks every creature was moved for
+     */
+    void countEvaluations(int creatures, long ticks) {
+        if (!enabled) return;
+        evaluations.add(creatures);
+        creatureTicks.add(creatures * ticks);
+    }
+
+    void countCopy(boolean allocated) {
+        if (!enabled) return;
+        copies.increment();
+        if (allocated) creatureAllocations.increment();
+    }
+
+    void countCrippledCreature() {
+        if (enabled) crippledCreatures.increment();
+    }
+
+    @Override
+    public long getGenerations() {
+        return generations.sum();
+    }
+
+    @Override
+    public long getEvaluations() {
+        return evaluations.sum();
+    }
+
+    @Override
+    public long getCreatureTicks() {
+        return creatureTicks.sum();
+    }
+
+    @Override
+    public long getCopies() {
+        return copies.sum();
+    }
+
+    @Override
+    public long getCreatureAllocations() {
+        return creatureAllocations.sum();
+    }
+
+    @Override
+    public long getGenerationThreadAllocatedBytes() {
+        return generationThreadBytes.sum();
+    }
+
+    @Override
+    public double getGenerationThreadAllocatedBytesPerGeneration() {
+        final long count = generations.sum();
+        return count == 0 ? 0 : (double) generationThreadBytes.sum() / count;
+    }
+
+    @Override
+    public long getCrippledCreatures() {
+        return crippledCreatures.sum();
+    }
+
+    @Override
+    public String[] getPhases() {
+        final String[] names = new String[PHASES.length];
+        for (int i = 0; i < names.length; i++)
+            names[i] = PHASES[i].name();
+        return names;
+    }
+
+    @Override
+    public long[] getPhaseCounts() {
+        final long[] result = new long[PHASES.length];
+        for (int i = 0; i < result.length; i++)
+            result[i] = counts[i].sum();
+        return result;
+    }
+
+    @Override
+    public long[] getPhaseTotalNanos() {
+        final long[] result = new long[PHASES.length];
+        for (int i = 0; i < result.length; i++)
+            result[i] = totals[i].sum();
+        return result;
+    }
+
+    @Override
+    public long[] getPhaseMaxNanos() {
+        final long[] result = new long[PHASES.length];
+        for (int i = 0; i < result.length; i++)
+            result[i] = maxima[i].get();
+        return result;
+    }
+
+    @Override
+    public long[] histogram(String phase) {
+        if (phase == null) throw new IllegalArgumentException("Null pointer phase.");
+        final int i = Phase.valueOf(phase).ordinal();
+        final long[] result = new long[BUCKETS];
+        for (int b = 0; b < BUCKETS; b++)
+            result[b] = histograms.get(i * BUCKETS + b);
+        return result;
+    }
+
+    /**
+     * @param phase phase to look at
+     * @param quantile between 0 and 1, e.g. 0.99
+     * @return upper bound of the bucket which contains the quantile, in nanoseconds; 0 if there are no measurements
+     */
+    public long getQuantileNanos(Phase phase, double quantile) {
+        if (quantile < 0 || quantile > 1) throw new IllegalArgumentException("Quantile must be between 0 and 1.");
+        final long[] buckets = histogram(phase.name());
+        long total = 0;
+        for (long count : buckets) total += count;
+        if (total == 0) return 0;
+        final long rank = (long) Math.ceil(quantile * total);
+        long seen = 0;
+        for (int b = 0; b < BUCKETS; b++) {
+            seen += buckets[b];
+            if (seen >= Math.max(1, rank)) return b == BUCKETS - 1 ? Long.MAX_VALUE : 1L << b;
+        }
+        return Long.MAX_VALUE;
+    }
+
+    @Override
+    public String getReport() {
+        final StringBuilder report = new StringBuilder(String.format(
+                "%d generations, %d evaluations, %d creature ticks, %d copies (%d allocated), %.0f bytes/generation on the generation thread, %d crippled%n",
+                getGenerations(), getEvaluations(), getCreatureTicks(), getCopies(), getCreatureAllocations(),
+                getGenerationThreadAllocatedBytesPerGeneration(), getCrippledCreatures()));
+        report.append(String.format("%-8s %10s %12s %12s %12s %12s%n", "phase", "count", "mean us", "p50 us <", "p99 us <", "max us"));
+        for (Phase phase : PHASES) {
+            final int i = phase.ordinal();
+            final long count = counts[i].sum();
+            report.append(String.format("%-8s %10d %12.1f %12.1f %12.1f %12.1f%n", phase, count,
+                    count == 0 ? 0 : totals[i].sum() / 1e3 / count, getQuantileNanos(phase, 0.5) / 1e3,
+                    getQuantileNanos(phase, 0.99) / 1e3, maxima[i].get() / 1e3));
+        }
+        return report.toString();
+    }
+
+    @Override
+    public void reset() {
+        for (int i = 0; i < PHASES.length; i++) {
+            counts[i].reset();
+            totals[i].reset();
+            maxima[i].set(0);
+        }
+        for (int i = 0; i < histograms.length(); i++)
+            histograms.set(i, 0);
+        generations.reset();
+        evaluations.reset();
+        creatureTicks.reset();
+        copies.reset();
+        creatureAllocations.reset();
+        generationThreadBytes.reset();
+        crippledCreatures.reset();
+    }
+}
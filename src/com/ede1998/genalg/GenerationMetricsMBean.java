@@ -0,0 +1,73 @@
+package com.ede1998.genalg;
+
+/**
+ * Management interface of GenerationMetrics, as shown by JMX clients such as JConsole or VisualVM.
+ * All values are summed over every generation of the JVM, whichever run it belongs to.
+ */
+public interface GenerationMetricsMBean {
+    boolean isEnabled();
+
+    void setEnabled(boolean enabled);
+
+    long getGenerations();
+
+    /**
+     * @return number of creatures which were moved, i.e. not taken from the fitness cache
+     */
+    long getEvaluations();
+
+    /**
+     * @return clock ticks of all moved creatures
+     */
+    long getCreatureTicks();
+
+    /**
+     * @return number of creatures copied into recycled creatures or cloned
+     */
+    long getCopies();
+
+    /**
+     * @return number of creatures which had to be cloned because there was no creature to recycle
+     */
+    long getCreatureAllocations();
+
+    /**
+     * @return bytes allocated on the threads which built the generations; allocations of evaluator threads, which
+     * move the creatures, are not included
+     */
+    long getGenerationThreadAllocatedBytes();
+
+    /**
+     * @return getGenerationThreadAllocatedBytes() divided by the number of generations
+     */
+    double getGenerationThreadAllocatedBytesPerGeneration();
+
+    /**
+     * @return number of mutations which would have left a node without a muscle and were undone
+     */
+    long getCrippledCreatures();
+
+    /**
+     * @return names of the phases, in the order of the phase arrays
+     */
+    String[] getPhases();
+
+    long[] getPhaseCounts();
+
+    long[] getPhaseTotalNanos();
+
+    long[] getPhaseMaxNanos();
+
+    /**
+     * @param phase name of the phase, see getPhases()
+     * @return number of measurements per bucket; bucket b counts durations of at least 2^(b-1) and less than 2^b ns
+     */
+    long[] histogram(String phase);
+
+    /**
+     * @return all measurements as a table
+     */
+    String getReport();
+
+    void reset();
+}
@@ -0,0 +1,128 @@
+package com.ede1998.genalg;
+
+import java.util.Locale;
+
+/**
+ * Immutable summary of one generation as written to the generation log: fitness of the best, median and worst
+ * creature, how many creatures have how many nodes and muscles, how the offspring were mutated and when the generation
+ * was done. Small enough to be made after every generation.
+ */
+public final class GenerationRecord {
+    private final int generation;
+    private final long wallMillis;
+    private final long nanos;
+    private final int population;
+    private final double bestFitness;
+    private final double medianFitness;
+    private final double worstFitness;
+    private final int[] nodeCounts = new int[Creature.MAX_NODES + 1];
+    private final int[] muscleCounts = new int[Creature.MAX_MUSCLES + 1];
+    private final int[] mutations = new int[Mutation.values().length];
+
+    /**
+     * @param generation generation which has just been evaluated
+     * @param nanos time the generation took
+     */
+    public GenerationRecord(Generation generation, long nanos) {
+        if (generation == null) throw new IllegalArgumentException("Null pointer generation.");
+        this.generation = generation.getNumber();
+        this.wallMillis = System.currentTimeMillis();
+        this.nanos = nanos;
+        this.population = generation.size();
+        //the walkers are ranked best first, so no sorting is needed
+        bestFitness = generation.getWalkerAt(0).getFitness();
+        medianFitness = generation.getWalkerAt(population / 2).getFitness();
+        worstFitness = generation.getWalkerAt(population - 1).getFitness();
+        for (int i = 0; i < population; i++) {
+            nodeCounts[generation.getWalkerAt(i).getNodeCount()]++;
+            muscleCounts[generation.getWalkerAt(i).getMuscleCount()]++;
+        }
+        for (Mutation mutation : Mutation.values())
+            mutations[mutation.ordinal()] = generation.getMutations(mutation);
+    }
+
+    public int getGeneration() {
+        return generation;
+    }
+
+    /**
+     * @return System.currentTimeMillis() when the record was made
+     */
+    public long getWallMillis() {
+        return wallMillis;
+    }
+
+    /**
+     * @return time the generation took in nanoseconds
+     */
+    public long getNanos() {
+        return nanos;
+    }
+
+    public int getPopulation() {
+        return population;
+    }
+
+    public double getBestFitness() {
+        return bestFitness;
+    }
+
+    public double getMedianFitness() {
+        return medianFitness;
+    }
+
+    public double getWorstFitness() {
+        return worstFitness;
+    }
+
+    /**
+     * @return number of creatures with the given number of nodes
+     */
+    public int getCreaturesWithNodes(int nodes) {
+        return nodeCounts[nodes];
+    }
+
+    /**
+     * @return number of creatures with the given number of muscles
+     */
+    public int getCreaturesWithMuscles(int muscles) {
+        return muscleCounts[muscles];
+    }
+
+    public int getMutations(Mutation mutation) {
+        return mutations[mutation.ordinal()];
+    }
+
+    /**
+     * @return names of the columns of toCsv()
+     */
+    public static String csvHeader() {
+        final StringBuilder header = new StringBuilder(
+                "generation,wall_millis,nanos,population,best_fitness,median_fitness,worst_fitness");
+        for (int n = 1; n <= Creature.MAX_NODES; n++)
+            header.append(",nodes_").append(n);
+        for (int m = 1; m <= Creature.MAX_MUSCLES; m++)
+            header.append(",muscles_").append(m);
+        for (Mutation mutation : Mutation.values())
+            header.append(",mutation_").append(mutation.name().toLowerCase(Locale.ROOT));
+        return header.toString();
+    }
+
+    /**
+     * @return the record as one line of comma separated values, without line break
+     */
+    public String toCsv() {
+        final StringBuilder line = new StringBuilder(160);
+        line.append(generation).append(',').append(wallMillis).append(',').append(nanos).append(',')
+                .append(population).append(',').append(bestFitness).append(',').append(medianFitness).append(',')
+                .append(worstFitness);
+        //creatures never have less than one node or muscle
+        for (int n = 1; n <= Creature.MAX_NODES; n++)
+            line.append(',').append(nodeCounts[n]);
+        for (int m = 1; m <= Creature.MAX_MUSCLES; m++)
+            line.append(',').append(muscleCounts[m]);
+        for (int count : mutations)
+            line.append(',').append(count);
+        return line.toString();
+    }
+}
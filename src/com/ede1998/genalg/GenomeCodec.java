@@ -0,0 +1,88 @@
+package com.ede1998.genalg;
+
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * Compact binary form of a genome, i.e. of everything that determines how a creature walks. Positions and lengths
+ * after moving are not part of it; a decoded creature is at its start position.
+ * Layout: node count and muscle count as one byte each, then for every node its friction and start position (3
+ * doubles), then for every muscle the indices of its nodes (one byte each), its start length, contracted and extended
+ * length and both time starts (5 doubles). Doubles are stored bit for bit, so a decoded creature walks exactly like the
+ * encoded one.
+ */
+final class GenomeCodec {
+    static final int NODE_BYTES = 3 * Double.BYTES;
+    static final int MUSCLE_BYTES = 2 + 5 * Double.BYTES;
+    /**
+     * Size of the largest possible genome.
+     */
+    static final int MAX_BYTES = 2 + Creature.MAX_NODES * NODE_BYTES + Creature.MAX_MUSCLES * MUSCLE_BYTES;
+
+    private GenomeCodec() {}
+
+    /**
+     * @return number of bytes encode(Creature, ByteBuffer) writes for the creature
+     */
+    static int size(Creature creature) {
+        return 2 + creature.getNodeCount() * NODE_BYTES + creature.getMuscleCount() * MUSCLE_BYTES;
+    }
+
+    /**
+     * Writes the genome at the buffer's position and advances it.
+     * @throws BufferOverflowException if the buffer has less than size(creature) bytes remaining
+     */
+    static void encode(Creature creature, ByteBuffer out) {
+        final int nodes = creature.getNodeCount(), muscles = creature.getMuscleCount();
+        if (out.remaining() < size(creature)) throw new BufferOverflowException();
+        out.put((byte) nodes);
+        out.put((byte) muscles);
+        for (int i = 0; i < nodes; i++) {
+            final Node node = creature.getNode(i);
+            out.putDouble(node.getFriction());
+            out.putDouble(node.getStartPositionX());
+            out.putDouble(node.getStartPositionY());
+        }
+        final ConnectionGraph connections = creature.getConnections();
+        for (int i = 0; i < muscles; i++) {
+            final Muscle muscle = creature.getMuscle(i);
+            out.put((byte) connections.getFirstNode(i));
+            out.put((byte) connections.getSecondNode(i));
+            out.putDouble(muscle.getStartLength());
+            out.putDouble(muscle.getContractedLength());
+            out.putDouble(muscle.getExtendedLength());
+            out.putDouble(muscle.getTimeContractionStart());
+            out.putDouble(muscle.getTimeExtensionStart());
+        }
+    }
+
+    /**
+     * Reads a genome at the buffer's position into an existing creature, reusing its nodes and muscles, and advances
+     * the buffer. The creature's fitness is left unchanged.
+     * @throws BufferUnderflowException if the buffer ends within the genome
+     * @throws IllegalArgumentException if the bytes are no valid genome
+     */
+    static void decode(ByteBuffer in, Creature into) {
+        final int nodes = in.get(), muscles = in.get();
+        if (nodes < 2 || nodes > Creature.MAX_NODES || muscles < 1 || muscles > Creature.MAX_MUSCLES)
+            throw new IllegalArgumentException("Invalid genome: " + nodes + " nodes, " + muscles + " muscles.");
+        if (in.remaining() < nodes * NODE_BYTES + muscles * MUSCLE_BYTES) throw new BufferUnderflowException();
+        into.clearGenome();
+        for (int i = 0; i < nodes; i++)
+            into.addNode(in.getDouble(), in.getDouble(), in.getDouble());
+        for (int i = 0; i < muscles; i++) {
+            final int node1 = in.get(), node2 = in.get();
+            into.addMuscle(node1, node2, in.getDouble(), in.getDouble(), in.getDouble(), in.getDouble(), in.getDouble());
+        }
+    }
+
+    /**
+     * Reads a genome at the buffer's position into a new creature and advances the buffer.
+     */
+    static Creature decode(ByteBuffer in) {
+        final Creature creature = new Creature();
+        decode(in, creature);
+        return creature;
+    }
+}
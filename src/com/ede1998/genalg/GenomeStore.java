@@ -0,0 +1,258 @@
+package com.ede1998.genalg;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Holds the genomes of many creatures outside the Java heap, in direct buffers, so millions of creatures neither
+ * take millions of heap objects nor cost the garbage collector anything to trace.
+ * Every creature takes one record of RECORD_BYTES bytes, big enough for MAX_NODES nodes and MAX_MUSCLES muscles:
+ * <pre>
+ *   0  fitness (double)
+ *   8  node count, muscle count, 1 if the fitness is only estimated (one byte each), 5 bytes padding
+ *  16  per node: friction, start x, start y (3 doubles)
+ * 256  per muscle: start length, contracted length, extended length, time contraction start, time extension start
+ *      (5 doubles)
+ * 656  per muscle: first node, second node (one byte each)
+ * 676  4 bytes padding
+ * </pre>
+ * Records are read and written through Record flyweights, which only hold an index; the packed simulator loads
+ * genomes straight from them, and StoredGeneration runs whole generations out of two stores. Records are kept in
+ * chunks of CHUNK_RECORDS, allocated as the store grows.
+ * Records may be read by several threads at once, and different records may be written by different threads at once.
+ */
+public class GenomeStore {
+    public static final int RECORD_BYTES = 680;
+    static final int CHUNK_BITS = 14;
+    public static final int CHUNK_RECORDS = 1 << CHUNK_BITS;
+    private static final int NODE_BYTES = 3 * Double.BYTES;
+    private static final int MUSCLE_BYTES = 5 * Double.BYTES;
+    private static final int NODE_COUNT = 8, MUSCLE_COUNT = 9, ESTIMATED = 10;
+    private static final int NODES = 16;
+    private static final int MUSCLES = NODES + Creature.MAX_NODES * NODE_BYTES;
+    private static final int CONNECTIONS = MUSCLES + Creature.MAX_MUSCLES * MUSCLE_BYTES;
+
+    static {
+        if (CONNECTIONS + 2 * Creature.MAX_MUSCLES > RECORD_BYTES)
+            throw new AssertionError("Genome record is too small.");
+        if (RECORD_BYTES % Long.BYTES != 0)
+            throw new AssertionError("Genome records are copied in longs.");
+    }
+
+    private final List<ByteBuffer> chunks = new ArrayList<>();
+    private int size;
+
+    /**
+     * @return number of creatures in the store
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return off-heap bytes allocated by the store, including space for creatures not yet added
+     */
+    public long getReservedBytes() {
+        return (long) chunks.size() * CHUNK_RECORDS * RECORD_BYTES;
+    }
+
+    /**
+     * @return reserved off-heap bytes per stored creature; approaches RECORD_BYTES as the last chunk fills up
+     */
+    public double getBytesPerCreature() {
+        return size == 0 ? 0 : (double) getReservedBytes() / size;
+    }
+
+    /**
+     * Appends a copy of the creature's genome and fitness.
+     * @return index of the new record
+     */
+    public int add(Creature creature) {
+        if (size == Integer.MAX_VALUE) throw new IllegalStateException("Genome store is full.");
+        if (size == chunks.size() * CHUNK_RECORDS)
+            chunks.add(ByteBuffer.allocateDirect(CHUNK_RECORDS * RECORD_BYTES).order(ByteOrder.nativeOrder()));
+        set(size, creature);
+        return size++;
+    }
+
+    /**
+     * Appends empty records until the store holds the given number of records, so they can be overwritten with set.
+     */
+    public void grow(int records) {
+        while (size < records) {
+            if (size == chunks.size() * CHUNK_RECORDS)
+                chunks.add(ByteBuffer.allocateDirect(CHUNK_RECORDS * RECORD_BYTES).order(ByteOrder.nativeOrder()));
+            size++;
+        }
+    }
+
+    /**
+     * Overwrites the record with a copy of a record of another (or the same) store, byte by byte.
+     */
+    public void set(int index, GenomeStore source, int sourceIndex) {
+        if (sourceIndex < 0 || sourceIndex >= source.size)
+            throw new IndexOutOfBoundsException("No genome record " + sourceIndex + ".");
+        final ByteBuffer from = source.chunk(sourceIndex), to = chunk(index);
+        final int fromBase = offset(sourceIndex), toBase = offset(index);
+        for (int i = 0; i < RECORD_BYTES; i += Long.BYTES)
+            to.putLong(toBase + i, from.getLong(fromBase + i));
+    }
+
+    /**
+     * Overwrites the record with a copy of the creature's genome and fitness.
+     */
+    public void set(int index, Creature creature) {
+        final ByteBuffer chunk = chunk(index);
+        final int base = offset(index);
+        final int nodes = creature.getNodeCount(), muscles = creature.getMuscleCount();
+        chunk.putDouble(base, creature.getFitness());
+        chunk.put(base + NODE_COUNT, (byte) nodes);
+        chunk.put(base + MUSCLE_COUNT, (byte) muscles);
+        chunk.put(base + ESTIMATED, (byte) (creature.isFitnessEstimated() ? 1 : 0));
+        for (int n = 0; n < nodes; n++) {
+            final Node node = creature.getNode(n);
+            final int at = base + NODES + n * NODE_BYTES;
+            chunk.putDouble(at, node.getFriction());
+            chunk.putDouble(at + Double.BYTES, node.getStartPositionX());
+            chunk.putDouble(at + 2 * Double.BYTES, node.getStartPositionY());
+        }
+        final ConnectionGraph connections = creature.getConnections();
+        for (int m = 0; m < muscles; m++) {
+            final Muscle muscle = creature.getMuscle(m);
+            final int at = base + MUSCLES + m * MUSCLE_BYTES;
+            chunk.putDouble(at, muscle.getStartLength());
+            chunk.putDouble(at + Double.BYTES, muscle.getContractedLength());
+            chunk.putDouble(at + 2 * Double.BYTES, muscle.getExtendedLength());
+            chunk.putDouble(at + 3 * Double.BYTES, muscle.getTimeContractionStart());
+            chunk.putDouble(at + 4 * Double.BYTES, muscle.getTimeExtensionStart());
+            chunk.put(base + CONNECTIONS + 2 * m, (byte) connections.getFirstNode(m));
+            chunk.put(base + CONNECTIONS + 2 * m + 1, (byte) connections.getSecondNode(m));
+        }
+    }
+
+    /**
+     * Turns an existing creature into the creature stored in the record, at its start position and with its fitness,
+     * reusing the creature's nodes and muscles.
+     */
+    public void get(int index, Creature into) {
+        final Record record = record(index);
+        into.clearGenome();
+        for (int n = 0; n < record.getNodeCount(); n++)
+            into.addNode(record.getFriction(n), record.getStartPositionX(n), record.getStartPositionY(n));
+        for (int m = 0; m < record.getMuscleCount(); m++)
+            into.addMuscle(record.getFirstNode(m), record.getSecondNode(m), record.getStartLength(m),
+                    record.getContractedLength(m), record.getExtendedLength(m), record.getTimeContractionStart(m),
+                    record.getTimeExtensionStart(m));
+        if (record.isFitnessEstimated()) into.estimateFitness(record.getFitness());
+        else into.setFitness(record.getFitness());
+    }
+
+    /**
+     * Replaces the record by a mutated copy of another record. Mutation runs on a scratch creature, so it behaves
+     * exactly like Creature.mutate(RandomNumberGenerator).
+     * @param scratch creature used for the mutation, its previous content is lost
+     */
+    public void breed(int parent, int child, RandomNumberGenerator random, Creature scratch) {
+        get(parent, scratch);
+        scratch.mutate(random);
+        set(child, scratch);
+    }
+
+    /**
+     * @return a new flyweight pointing at the record
+     */
+    public Record record(int index) {
+        return new Record().moveTo(index);
+    }
+
+    private ByteBuffer chunk(int index) {
+        if (index < 0 || index >= chunks.size() * CHUNK_RECORDS || (index >= size && index != size))
+            throw new IndexOutOfBoundsException("No genome record " + index + ".");
+        return chunks.get(index >>> CHUNK_BITS);
+    }
+
+    private static int offset(int index) {
+        return (index & (CHUNK_RECORDS - 1)) * RECORD_BYTES;
+    }
+
+    /**
+     * View of one record of the store. A flyweight only holds the position of its record; moveTo points it at
+     * another one, so a single instance can walk over all creatures. Not thread-safe, every thread needs its own.
+     */
+    public final class Record {
+        private ByteBuffer chunk;
+        private int base;
+
+        private Record() {}
+
+        public Record moveTo(int index) {
+            if (index < 0 || index >= size) throw new IndexOutOfBoundsException("No genome record " + index + ".");
+            chunk = chunks.get(index >>> CHUNK_BITS);
+            base = offset(index);
+            return this;
+        }
+
+        public double getFitness() {
+            return chunk.getDouble(base);
+        }
+
+        public void setFitness(double fitness) {
+            chunk.putDouble(base, fitness);
+            chunk.put(base + ESTIMATED, (byte) 0);
+        }
+
+        public boolean isFitnessEstimated() {
+            return chunk.get(base + ESTIMATED) != 0;
+        }
+
+        public int getNodeCount() {
+            return chunk.get(base + NODE_COUNT);
+        }
+
+        public int getMuscleCount() {
+            return chunk.get(base + MUSCLE_COUNT);
+        }
+
+        public double getFriction(int node) {
+            return chunk.getDouble(base + NODES + node * NODE_BYTES);
+        }
+
+        public double getStartPositionX(int node) {
+            return chunk.getDouble(base + NODES + node * NODE_BYTES + Double.BYTES);
+        }
+
+        public double getStartPositionY(int node) {
+            return chunk.getDouble(base + NODES + node * NODE_BYTES + 2 * Double.BYTES);
+        }
+
+        public double getStartLength(int muscle) {
+            return chunk.getDouble(base + MUSCLES + muscle * MUSCLE_BYTES);
+        }
+
+        public double getContractedLength(int muscle) {
+            return chunk.getDouble(base + MUSCLES + muscle * MUSCLE_BYTES + Double.BYTES);
+        }
+
+        public double getExtendedLength(int muscle) {
+            return chunk.getDouble(base + MUSCLES + muscle * MUSCLE_BYTES + 2 * Double.BYTES);
+        }
+
+        public double getTimeContractionStart(int muscle) {
+            return chunk.getDouble(base + MUSCLES + muscle * MUSCLE_BYTES + 3 * Double.BYTES);
+        }
+
+        public double getTimeExtensionStart(int muscle) {
+            return chunk.getDouble(base + MUSCLES + muscle * MUSCLE_BYTES + 4 * Double.BYTES);
+        }
+
+        public int getFirstNode(int muscle) {
+            return chunk.get(base + CONNECTIONS + 2 * muscle);
+        }
+
+        public int getSecondNode(int muscle) {
+            return chunk.get(base + CONNECTIONS + 2 * muscle + 1);
+        }
+    }
+}
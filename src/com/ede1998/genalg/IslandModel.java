@@ -0,0 +1,205 @@
+package com.ede1998.genalg;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Evolves several independent lineages of generations, the islands, each on its own thread. Every few generations an
+ * island sends copies of its best creatures to other islands. They are put into a lock-free queue of the receiving
+ * island and take the place of new mutated creatures in its next generation. Islands never wait for each other, so
+ * migrants arrive whenever the receiving island gets to them; like the steady state mode, two runs with the same seed
+ * therefore usually differ once migration happens.
+ * Besides the statistics of every island, the best creatures found on any island are kept in a hall of fame.
+ */
+public class IslandModel {
+    public static final int HALL_OF_FAME_SIZE = 10;
+    private final ExecutorService pool;
+    private final Island[] islands;
+    private final EvolutionConfig config;
+    private final Simulator simulator;
+    private final MigrationTopology topology;
+    private final int migrationInterval;
+    private final int migrants;
+    private final ConcurrentSkipListSet<RankedCreature> hallOfFame = new ConcurrentSkipListSet<>();
+    //the skip list counts its elements in linear time, so its size is tracked separately
+    private final AtomicInteger hallOfFameSize = new AtomicInteger();
+
+    /**
+     * Runs every island with the default configuration.
+     * @param islandCount number of islands, each gets its own thread
+     * @param walkersPerIsland number of creatures of every generation of an island
+     * @param seed master seed; every island gets its own seed from it
+     * @param simulator moves a single creature
+     * @param topology where migrants go
+     * @param migrationInterval number of generations between two migrations
+     * @param migrants number of best creatures an island sends to each receiving island
+     */
+    public IslandModel(int islandCount, int walkersPerIsland, long seed, Simulator simulator,
+                       MigrationTopology topology, int migrationInterval, int migrants) {
+        this(islandCount, EvolutionConfig.DEFAULT.withPopulation(walkersPerIsland), seed, simulator, topology,
+                migrationInterval, migrants);
+    }
+
+    /**
+     * @param islandCount number of islands, each gets its own thread
+     * @param config parameters of the run of every island; the population is the number of creatures per island
+     * @param seed master seed; every island gets its own seed from it
+     * @param simulator moves a single creature
+     * @param topology where migrants go
+     * @param migrationInterval number of generations between two migrations
+     * @param migrants number of best creatures an island sends to each receiving island
+     */
+    public IslandModel(int islandCount, EvolutionConfig config, long seed, Simulator simulator,
+                       MigrationTopology topology, int migrationInterval, int migrants) {
+        if (islandCount <= 0) throw new IllegalArgumentException("Island count must be greater than 0.");
+        if (config == null) throw new IllegalArgumentException("Null pointer config.");
+        if (simulator == null) throw new IllegalArgumentException("Null pointer simulator.");
+        if (topology == null) throw new IllegalArgumentException("Null pointer topology.");
+        if (migrationInterval <= 0) throw new IllegalArgumentException("Migration interval must be greater than 0.");
+        if (migrants < 0 || migrants > config.getPopulation())
+            throw new IllegalArgumentException("Migrant count must be between 0 and the number of creatures per island.");
+        this.config = config;
+        this.simulator = simulator;
+        this.topology = topology;
+        this.migrationInterval = migrationInterval;
+        this.migrants = migrants;
+        final RandomNumberGenerator random = new RandomNumberGenerator(seed);
+        islands = new Island[islandCount];
+        for (int i = 0; i < islandCount; i++)
+            islands[i] = new Island(i, random.nextLong());
+        final AtomicInteger threadNumber = new AtomicInteger();
+        pool = Executors.newFixedThreadPool(islandCount, (Runnable r) -> {
+            Thread t = new Thread(r, "genalg-island-" + threadNumber.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Lets every island evolve the given number of generations and returns when all islands are done. Can be called
+     * repeatedly to continue the run.
+     * @param generations number of generations per island
+     */
+    public void run(int generations) {
+        if (generations < 0) throw new IllegalArgumentException("Number of generations must not be negative.");
+        List<Future<?>> running = new ArrayList<>(islands.length);
+        for (Island island : islands)
+            running.add(pool.submit(() -> island.evolve(generations)));
+        for (Future<?> f : running) {
+            try {
+                f.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for islands to evolve.", e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+    }
+
+    public int getIslandCount() {
+        return islands.length;
+    }
+
+    /**
+     * @return statistics of the island after its latest generation, null if it has not evolved yet
+     */
+    public IslandStats getStats(int island) {
+        return islands[island].stats;
+    }
+
+    /**
+     * @return copies of the best distinct creatures found on any island so far, the best one first
+     */
+    public List<Creature> getHallOfFame() {
+        List<Creature> famous = new ArrayList<>(HALL_OF_FAME_SIZE);
+        for (RankedCreature r : hallOfFame)
+            famous.add(r.creature);
+        return famous;
+    }
+
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    /**
+     * Offers the best creatures of a generation to the hall of fame. Creatures are copied only if they get in, as the
+     * generation reuses its creatures later.
+     */
+    private void enterHallOfFame(Generation generation) {
+        for (int i = 0; i < generation.size(); i++) {
+            final Creature candidate = generation.getWalkerAt(i);
+            if (hallOfFameSize.get() >= HALL_OF_FAME_SIZE) {
+                final RankedCreature worst = hallOfFame.last();
+                if (candidate.getFitness() <= worst.score) return;
+            }
+            if (hallOfFame.add(new RankedCreature(candidate.clone(), candidate.fingerprint()))
+                    && hallOfFameSize.incrementAndGet() > HALL_OF_FAME_SIZE && hallOfFame.pollLast() != null)
+                hallOfFameSize.decrementAndGet();
+        }
+    }
+
+    private final class Island {
+        private final int index;
+        private final long seed;
+        private final ConcurrentLinkedQueue<Creature> inbox = new ConcurrentLinkedQueue<>();
+        private Generation generation;
+        private int generations;
+        private long emigrants;
+        private long immigrants;
+        private long busyNanos;
+        private volatile IslandStats stats;
+
+        Island(int index, long seed) {
+            this.index = index;
+            this.seed = seed;
+        }
+
+        void evolve(int generationsToDo) {
+            final long start = System.nanoTime();
+            for (int g = 0; g < generationsToDo; g++) {
+                if (generation == null)
+                    generation = new Generation(config, seed, new SequentialEvaluator(simulator));
+                else {
+                    final List<Creature> arrivals = new ArrayList<>();
+                    Creature immigrant;
+                    while ((immigrant = inbox.poll()) != null)
+                        arrivals.add(immigrant);
+                    generation = new Generation(generation, arrivals);
+                    immigrants += Math.min(arrivals.size(), config.getPopulation() - config.getSurvivors());
+                }
+                generations++;
+                if (generations % migrationInterval == 0)
+                    emigrate();
+                enterHallOfFame(generation);
+                publishStats(System.nanoTime() - start);
+            }
+            busyNanos += System.nanoTime() - start;
+        }
+
+        private void emigrate() {
+            for (int target : topology.targets(index, islands.length)) {
+                for (int i = 0; i < migrants; i++)
+                    islands[target].inbox.offer(generation.getWalkerAt(i).clone());
+                emigrants += migrants;
+            }
+        }
+
+        private void publishStats(long runNanos) {
+            double sum = 0;
+            for (int i = 0; i < generation.size(); i++)
+                sum += generation.getWalkerAt(i).getFitness();
+            final long nanos = busyNanos + runNanos;
+            stats = new IslandStats(index, generations, generation.getWalkerAt(0).getFitness(),
+                    sum / generation.size(), emigrants, immigrants, nanos == 0 ? 0 : generations * 1e9 / nanos);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.ede1998.genalg;
+
+/**
+ * State of an island after its latest generation. Islands publish a new instance after every generation, so an
+ * instance never changes.
+ */
+public final class IslandStats {
+    private final int island;
+    private final int generations;
+    private final double bestFitness;
+    private final double meanFitness;
+    private final long emigrants;
+    private final long immigrants;
+    private final double generationsPerSecond;
+
+    IslandStats(int island, int generations, double bestFitness, double meanFitness, long emigrants, long immigrants,
+                double generationsPerSecond) {
+        this.island = island;
+        this.generations = generations;
+        this.bestFitness = bestFitness;
+        this.meanFitness = meanFitness;
+        this.emigrants = emigrants;
+        this.immigrants = immigrants;
+        this.generationsPerSecond = generationsPerSecond;
+    }
+
+    public int getIsland() {
+        return island;
+    }
+
+    /**
+     * @return number of generations the island has evolved, including the first one
+     */
+    public int getGenerations() {
+        return generations;
+    }
+
+    public double getBestFitness() {
+        return bestFitness;
+    }
+
+    public double getMeanFitness() {
+        return meanFitness;
+    }
+
+    /**
+     * @return number of creatures sent to other islands
+     */
+    public long getEmigrants() {
+        return emigrants;
+    }
+
+    /**
+     * @return number of creatures from other islands which joined a generation of this island
+     */
+    public long getImmigrants() {
+        return immigrants;
+    }
+
+    public double getGenerationsPerSecond() {
+        return generationsPerSecond;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("island %d: generation %d, best %.3f, mean %.3f, %d out, %d in, %.2f generations/s",
+                island, generations, bestFitness, meanFitness, emigrants, immigrants, generationsPerSecond);
+    }
+}
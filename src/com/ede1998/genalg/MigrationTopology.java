@@ -0,0 +1,29 @@
+package com.ede1998.genalg;
+
+/**
+ * Decides to which islands the migrants of an island go.
+ */
+public enum MigrationTopology {
+    /**
+     * Every island sends its migrants to the next island, the last one to the first one.
+     */
+    RING,
+    /**
+     * Every island sends its migrants to all other islands.
+     */
+    FULL;
+
+    /**
+     * @param island index of the sending island
+     * @param islands number of islands
+     * @return indices of the receiving islands
+     */
+    int[] targets(int island, int islands) {
+        if (islands <= 1) return new int[0];
+        if (this == RING) return new int[] {(island + 1) % islands};
+        final int[] targets = new int[islands - 1];
+        for (int i = 0, j = 0; i < islands; i++)
+            if (i != island) targets[j++] = i;
+        return targets;
+    }
+}
@@ -0,0 +1,126 @@
+package com.ede1998.genalg;
+
+class Muscle {
+    private static final double MAX_MUSCLE_LENGTH = 12;
+    // private double strength;
+    private double contractedLength;
+    private double extendedLength;
+    private double timeContractionStart;
+    private double timeExtensionStart;
+    private double length;
+    private double startLength;
+    private final MuscleSchedule schedule = new MuscleSchedule();
+
+    /**
+     * Creates an unused muscle slot, see randomize(double, RandomNumberGenerator).
+     */
+    Muscle() {
+    }
+
+    public Muscle(double length, RandomNumberGenerator random) {
+        randomize(length, random);
+    }
+
+    void set(double length, double contractedLength, double extendedLength, double timeContractionStart, double timeExtensionStart) {
+        //this.strength = strength;
+        this.contractedLength = contractedLength;
+        this.extendedLength = extendedLength;
+        if (contractedLength > extendedLength)
+            throw new IllegalArgumentException("Extended muscle must be longer than contracted muscle.");
+        if ((timeContractionStart < 0) || (timeContractionStart > 1)) {
+            throw new IllegalArgumentException("timeContractionStart must be between 0 and 1.");
+        }
+        if ((timeExtensionStart < 0) || (timeExtensionStart > 1)) {
+            throw new IllegalArgumentException(("timeExtensionStart must be between 0 and 1."));
+        }
+        if (timeContractionStart == timeExtensionStart) {
+            throw new IllegalArgumentException("timeExtensionStart must differ from timeContractionStart.");
+        }
+
+        this.timeContractionStart = timeContractionStart;
+        this.timeExtensionStart = timeExtensionStart;
+        this.length = length;
+        this.startLength = length;
+        schedule.compile(contractedLength, extendedLength, timeContractionStart, timeExtensionStart);
+    }
+
+    /**
+     * Gives this muscle random parameters for the given start length.
+     */
+    void randomize(double length, RandomNumberGenerator random) {
+        set(length, length - random.random(length),
+                        length + random.random(Math.max(Muscle.MAX_MUSCLE_LENGTH - length, 0)),
+                        random.random(), random.random());
+    }
+
+    /**
+     * Copies the other muscle at its start length.
+     */
+    void copyFrom(Muscle other) {
+        contractedLength = other.contractedLength;
+        extendedLength = other.extendedLength;
+        timeContractionStart = other.timeContractionStart;
+        timeExtensionStart = other.timeExtensionStart;
+        length = other.startLength;
+        startLength = other.startLength;
+        schedule.copyFrom(other.schedule);
+    }
+
+    public double getLength() {
+        return length;
+        //TODO make sure length is initialized before first call
+    }
+
+    void setLength(double length) {
+        this.length = length;
+    }
+
+    double getStartLength() {
+        return startLength;
+    }
+
+    public void reset() {
+        length = startLength;
+    }
+
+    double getContractedLength() {
+        return contractedLength;
+    }
+
+    double getExtendedLength() {
+        return extendedLength;
+    }
+
+    double getTimeContractionStart() {
+        return timeContractionStart;
+    }
+
+    double getTimeExtensionStart() {
+        return timeExtensionStart;
+    }
+
+    MuscleSchedule getSchedule() {
+        return schedule;
+    }
+
+    public void tenseOrRelease(double timeQuotient) {
+        length = schedule.lengthAt(timeQuotient);
+    }
+
+    public void mutate(double divergence, double startingDist, RandomNumberGenerator random) {
+        contractedLength *= random.randG(divergence, 1);
+        extendedLength *= random.randG(divergence, 1);
+        if (contractedLength > startingDist) contractedLength = startingDist;
+        if (extendedLength < startingDist) extendedLength = startingDist;
+        length = startingDist;
+        startLength = startingDist;
+
+        timeContractionStart *= random.randG(divergence, 1);
+        while (timeContractionStart >= 1) timeContractionStart--;
+        while (timeContractionStart < 0) timeContractionStart++;
+        timeExtensionStart *= random.randG(divergence, 1);
+        while (timeExtensionStart >= 1) timeExtensionStart--;
+        while (timeExtensionStart < 0) timeExtensionStart++;
+        schedule.compile(contractedLength, extendedLength, timeContractionStart, timeExtensionStart);
+    }
+}
@@ -0,0 +1,69 @@
+package com.ede1998.genalg;
+
+/**
+ * The length of a muscle over its movement cycle, compiled from the muscle's parameters.
+ * During one cycle the muscle contracts from timeContractionStart to timeExtensionStart and extends for the rest of
+ * the cycle, both linearly. So the length is a piecewise linear function of the time quotient with breakpoints at both
+ * start times: before the earlier one, between both (inclusive) and after the later one. Each piece is stored as
+ * intercept and slope, so evaluating the schedule is a comparison and a multiply-add.
+ * Compared to evaluating the quotient of each piece directly, lengths only differ by rounding, far below
+ * PackedSimulator.TOLERANCE.
+ * Every muscle owns its schedule and recompiles it in place whenever its parameters change.
+ */
+final class MuscleSchedule {
+    double lowerBreak, upperBreak;
+    double interceptBefore, slopeBefore;
+    double interceptBetween, slopeBetween;
+    double interceptAfter, slopeAfter;
+
+    void compile(double contractedLength, double extendedLength, double timeContractionStart, double timeExtensionStart) {
+        final double span = extendedLength - contractedLength;
+        final double c = timeContractionStart, e = timeExtensionStart;
+        //length quotient (0 contracted, 1 extended) = a + b * timeQuotient on every piece
+        final double aBefore, aBetween, bBetween, aAfter, b;
+        if (e < c) { //extends between both, contracts across the end of the cycle
+            final double cycleRest = 1 - (c - e);
+            b = 1 / cycleRest;
+            aBefore = (1 - c) / cycleRest;
+            aAfter = -c / cycleRest;
+            bBetween = 1 / (c - e);
+            aBetween = -e * bBetween;
+        } else { //contracts between both, extends across the end of the cycle
+            final double cycleRest = 1 - (e - c);
+            b = 1 / cycleRest;
+            aBefore = (1 - e) / cycleRest;
+            aAfter = -e / cycleRest;
+            bBetween = e > c ? -1 / (e - c) : 0;
+            aBetween = 1 - c * bBetween;
+        }
+        lowerBreak = Math.min(c, e);
+        upperBreak = Math.max(c, e);
+        interceptBefore = contractedLength + aBefore * span;
+        slopeBefore = b * span;
+        interceptBetween = contractedLength + aBetween * span;
+        slopeBetween = bBetween * span;
+        interceptAfter = contractedLength + aAfter * span;
+        slopeAfter = b * span;
+    }
+
+    void copyFrom(MuscleSchedule other) {
+        lowerBreak = other.lowerBreak;
+        upperBreak = other.upperBreak;
+        interceptBefore = other.interceptBefore;
+        slopeBefore = other.slopeBefore;
+        interceptBetween = other.interceptBetween;
+        slopeBetween = other.slopeBetween;
+        interceptAfter = other.interceptAfter;
+        slopeAfter = other.slopeAfter;
+    }
+
+    /**
+     * @param timeQuotient point of the movement cycle between 0 and 1
+     * @return length of the muscle at that point
+     */
+    double lengthAt(double timeQuotient) {
+        if (timeQuotient < lowerBreak) return interceptBefore + slopeBefore * timeQuotient;
+        if (timeQuotient > upperBreak) return interceptAfter + slopeAfter * timeQuotient;
+        return interceptBetween + slopeBetween * timeQuotient;
+    }
+}
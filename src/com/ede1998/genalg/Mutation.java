@@ -0,0 +1,16 @@
+package com.ede1998.genalg;
+
+/**
+ * Change of the structure of a creature by Creature.mutate(RandomNumberGenerator), apart from altering the parameters
+ * of all nodes and muscles, which happens on every mutation.
+ */
+public enum Mutation {
+    /**
+     * Only the parameters were altered, either by chance or because the chosen change was not possible.
+     */
+    NONE,
+    ADD_NODE,
+    ADD_MUSCLE,
+    REMOVE_MUSCLE,
+    REMOVE_NODE
+}
@@ -0,0 +1,111 @@
+package com.ede1998.genalg;
+
+class Node {
+    private static final double MAX_POS_X = 10;
+    private static final double MAX_POS_Y = 10;
+    private double friction;
+    private double positionX;
+    private double positionY;
+    private double startPositionX;
+    private double startPositionY;
+    private double deltaX, deltaY;
+
+
+    /**
+     * Creates an unused node slot, see randomize(RandomNumberGenerator).
+     */
+    Node() {
+    }
+
+    public Node(RandomNumberGenerator random) {
+        randomize(random);
+    }
+
+    void set(double friction, double posX, double posY) throws IllegalArgumentException {
+        if ((friction < 0) || (friction > 1))
+            throw new IllegalArgumentException("Node friction must be between 0 and 1.");
+        this.friction = friction;
+        this.positionX = posX;
+        this.startPositionX = posX;
+        if (posY < 0)
+            throw new IllegalArgumentException("Node must be above ground.");
+        this.positionY = posY;
+        this.startPositionY = posY;
+        deltaX = deltaY = 0;
+    }
+
+    /**
+     * Gives this node a random friction and start position.
+     */
+    void randomize(RandomNumberGenerator random) {
+        set(random.random(), random.random(0, MAX_POS_X),
+                        random.random(0, MAX_POS_Y));
+    }
+
+    public double getFriction() {
+        return friction;
+    }
+
+    public double getPositionX() {
+        return positionX;
+    }
+
+    public double getPositionY() {
+        return positionY;
+    }
+
+    double getStartPositionX() {
+        return startPositionX;
+    }
+
+    double getStartPositionY() {
+        return startPositionY;
+    }
+
+    public void movePosition(double deltaX, double deltaY) {
+        this.deltaX += deltaX;
+        this.deltaY += deltaY;
+    }
+
+    void setPosition(double positionX, double positionY) {
+        this.positionX = positionX;
+        this.positionY = positionY;
+        deltaX = deltaY = 0;
+    }
+
+    public void forceMovement() {
+        positionX += deltaX;
+        positionY += deltaY;
+        deltaX = 0;
+        deltaY = 0;
+    }
+
+    public void reset() {
+        this.positionX = startPositionX;
+        this.positionY = startPositionY;
+        deltaX = deltaY = 0;
+    }
+
+    /**
+     * Copies the other node as it was before the creature moved, i.e. at its start position.
+     */
+    void copyFrom(Node other) {
+        set(other.friction, other.startPositionX, other.startPositionY);
+    }
+
+    public double getDistance(Node n2) {
+        return Math.sqrt(Math.pow(this.getPositionX() - n2.getPositionX(), 2) + Math.pow(this.getPositionY() - n2.getPositionY(), 2));
+    }
+
+    public void mutate(double divergence, RandomNumberGenerator random) {
+        startPositionY *= random.randG(divergence, 1);
+        if (startPositionY < 0)
+            startPositionY = 0;
+        startPositionX *= random.randG(divergence, 1);
+        positionX = startPositionX;
+        positionY = startPositionY;
+        friction *= random.randG(divergence, 1);
+        if (friction < 0) friction = 0;
+        if (friction > 1) friction = 1;
+    }
+}
@@ -0,0 +1,51 @@
+package com.ede1998.genalg;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Moves the creature on its own nodes and muscles. Optionally stops simulating once the creature's gait repeats
+ * itself and extrapolates the remaining cycles, see Creature.move(int, int, double).
+ */
+public class ObjectSimulator implements Simulator {
+    private final boolean extrapolate;
+    private final double tolerance;
+    private final LongAdder requestedCycles = new LongAdder();
+    private final LongAdder simulatedCycles = new LongAdder();
+
+    /**
+     * Always simulates the full time span.
+     */
+    public ObjectSimulator() {
+        extrapolate = false;
+        tolerance = 0;
+    }
+
+    /**
+     * Extrapolates periodic gaits.
+     * @param tolerance maximum difference of node heights and muscle lengths between two cycles which still counts as
+     *                  periodic, e.g. Creature.GAIT_TOLERANCE
+     */
+    public ObjectSimulator(double tolerance) {
+        if (tolerance < 0) throw new IllegalArgumentException("Tolerance must not be negative.");
+        extrapolate = true;
+        this.tolerance = tolerance;
+    }
+
+    @Override
+    public void simulate(Creature creature, int time, int resolution) {
+        if (!extrapolate) {
+            creature.move(time, resolution);
+            return;
+        }
+        requestedCycles.add(time);
+        simulatedCycles.add(creature.move(time, resolution, tolerance));
+    }
+
+    /**
+     * @return fraction of movement cycles which were extrapolated instead of simulated, 0 without extrapolation
+     */
+    public double getExtrapolatedFraction() {
+        final long requested = requestedCycles.sum();
+        return requested == 0 ? 0 : 1 - (double) simulatedCycles.sum() / requested;
+    }
+}
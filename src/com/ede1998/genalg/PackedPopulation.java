@@ -0,0 +1,281 @@
+package com.ede1998.genalg;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * One or more creatures stored as structure of arrays: every property of their nodes and muscles is kept in its own
+ * primitive array. The nodes and muscles of each creature occupy a contiguous range of these arrays, in the same order
+ * as in the creature's own arrays. All creatures are moved together, clock tick by clock tick, so every tick is a
+ * single sweep over all muscles followed by one over all nodes.
+ * Instances are reused, the arrays only grow if the creatures do not fit, so moving does not allocate anything.
+ */
+class PackedPopulation {
+    private int creatureCount;
+    private int nodeCount;
+    private int muscleCount;
+    private int[] nodeStart = new int[1];
+    private int[] muscleStart = new int[1];
+
+    private double[] positionX = new double[0];
+    private double[] positionY = new double[0];
+    private double[] deltaX = new double[0];
+    private double[] deltaY = new double[0];
+    private double[] friction = new double[0];
+
+    private double[] length = new double[0];
+    //compiled muscle schedules, see MuscleSchedule
+    private double[] lowerBreak = new double[0];
+    private double[] upperBreak = new double[0];
+    private double[] interceptBefore = new double[0];
+    private double[] slopeBefore = new double[0];
+    private double[] interceptBetween = new double[0];
+    private double[] slopeBetween = new double[0];
+    private double[] interceptAfter = new double[0];
+    private double[] slopeAfter = new double[0];
+    private int[] firstNode = new int[0];
+    private int[] secondNode = new int[0];
+
+    private final MuscleSchedule scratchSchedule = new MuscleSchedule();
+
+    /**
+     * Replaces the packed creatures by a copy of the current state of the given creature.
+     */
+    public void load(Creature creature) {
+        clear();
+        add(creature);
+    }
+
+    /**
+     * Replaces the packed creatures by a copy of the current state of the given creatures.
+     */
+    public void load(List<Creature> creatures) {
+        clear();
+        for (Creature c : creatures)
+            add(c);
+    }
+
+    /**
+     * Replaces the packed creatures by the creatures of the records from (inclusive) to to (exclusive) of the genome
+     * store, at their start positions. The genomes are read straight from the records.
+     */
+    public void load(GenomeStore store, int from, int to) {
+        if (from < 0 || to > store.size() || from > to) throw new IndexOutOfBoundsException("Invalid record range.");
+        clear();
+        final GenomeStore.Record record = store.record(from);
+        for (int i = from; i < to; i++)
+            add(record.moveTo(i));
+    }
+
+    /**
+     * Writes the fitness of the creatures loaded with load(GenomeStore, int, int) into their records, i.e. their
+     * average x position like Creature.updateFitness() computes it.
+     * @param from first record that was loaded
+     */
+    public void storeFitness(GenomeStore store, int from) {
+        final GenomeStore.Record record = store.record(from);
+        for (int c = 0; c < creatureCount; c++) {
+            double pos = 0;
+            for (int n = nodeStart[c]; n < nodeStart[c + 1]; n++) pos += positionX[n];
+            record.moveTo(from + c).setFitness(pos / (nodeStart[c + 1] - nodeStart[c]));
+        }
+    }
+
+    /**
+     * Copies node positions and muscle lengths back into the creature loaded with load(Creature).
+     */
+    public void store(Creature creature) {
+        store(0, creature);
+    }
+
+    /**
+     * Copies node positions and muscle lengths back into the creatures loaded with load(List), in the same order.
+     */
+    public void store(List<Creature> creatures) {
+        for (int c = 0; c < creatureCount; c++)
+            store(c, creatures.get(c));
+    }
+
+    public int getCreatureCount() {
+        return creatureCount;
+    }
+
+    private void clear() {
+        creatureCount = nodeCount = muscleCount = 0;
+    }
+
+    private void add(Creature creature) {
+        final int nodes = creature.getNodeCount(), muscles = creature.getMuscleCount();
+        final ConnectionGraph connections = creature.getConnections();
+        final int firstN = nodeCount, firstM = muscleCount;
+        ensureCapacity(creatureCount + 1, firstN + nodes, firstM + muscles);
+        for (int i = 0; i < nodes; i++) {
+            final int n = firstN + i;
+            final Node node = creature.getNode(i);
+            positionX[n] = node.getPositionX();
+            positionY[n] = node.getPositionY();
+            deltaX[n] = 0;
+            deltaY[n] = 0;
+            friction[n] = node.getFriction();
+        }
+        for (int i = 0; i < muscles; i++) {
+            final Muscle muscle = creature.getMuscle(i);
+            setMuscle(firstM + i, muscle.getLength(), muscle.getSchedule(),
+                    firstN + connections.getFirstNode(i), firstN + connections.getSecondNode(i));
+        }
+        finishCreature(nodes, muscles);
+    }
+
+    private void add(GenomeStore.Record record) {
+        final int nodes = record.getNodeCount(), muscles = record.getMuscleCount();
+        final int firstN = nodeCount, firstM = muscleCount;
+        ensureCapacity(creatureCount + 1, firstN + nodes, firstM + muscles);
+        for (int i = 0; i < nodes; i++) {
+            final int n = firstN + i;
+            positionX[n] = record.getStartPositionX(i);
+            positionY[n] = record.getStartPositionY(i);
+            deltaX[n] = 0;
+            deltaY[n] = 0;
+            friction[n] = record.getFriction(i);
+        }
+        for (int i = 0; i < muscles; i++) {
+            scratchSchedule.compile(record.getContractedLength(i), record.getExtendedLength(i),
+                    record.getTimeContractionStart(i), record.getTimeExtensionStart(i));
+            setMuscle(firstM + i, record.getStartLength(i), scratchSchedule,
+                    firstN + record.getFirstNode(i), firstN + record.getSecondNode(i));
+        }
+        finishCreature(nodes, muscles);
+    }
+
+    private void setMuscle(int m, double muscleLength, MuscleSchedule schedule, int first, int second) {
+        length[m] = muscleLength;
+        lowerBreak[m] = schedule.lowerBreak;
+        upperBreak[m] = schedule.upperBreak;
+        interceptBefore[m] = schedule.interceptBefore;
+        slopeBefore[m] = schedule.slopeBefore;
+        interceptBetween[m] = schedule.interceptBetween;
+        slopeBetween[m] = schedule.slopeBetween;
+        interceptAfter[m] = schedule.interceptAfter;
+        slopeAfter[m] = schedule.slopeAfter;
+        firstNode[m] = first;
+        secondNode[m] = second;
+    }
+
+    private void finishCreature(int nodes, int muscles) {
+        nodeCount += nodes;
+        muscleCount += muscles;
+        creatureCount++;
+        nodeStart[creatureCount] = nodeCount;
+        muscleStart[creatureCount] = muscleCount;
+    }
+
+    private void store(int c, Creature creature) {
+        final int nodes = creature.getNodeCount(), muscles = creature.getMuscleCount();
+        if (nodes != nodeStart[c + 1] - nodeStart[c] || muscles != muscleStart[c + 1] - muscleStart[c])
+            throw new IllegalArgumentException("Creature does not match the packed creature.");
+        for (int i = 0; i < nodes; i++)
+            creature.getNode(i).setPosition(positionX[nodeStart[c] + i], positionY[nodeStart[c] + i]);
+        for (int i = 0; i < muscles; i++)
+            creature.getMuscle(i).setLength(length[muscleStart[c] + i]);
+        creature.updateFitness();
+    }
+
+    /**
+     * Moves all packed creatures like Creature.move(int, int) would.
+     */
+    public void move(int time, int resolution) {
+        if (time <= 0) throw new IllegalArgumentException("Time to try must be greater than 0.");
+        if (resolution <= 0) throw new IllegalArgumentException("Resolution must be greater than 0.");
+        for (int i = 0; i < time; i++)
+            tryToMove(resolution);
+    }
+
+    private void tryToMove(int resolution) {
+        for (int clock = 0; clock < resolution; clock++) {
+            final double timeQuotient = (double) clock / resolution;
+            moveMuscles(timeQuotient);
+            for (int n = 0; n < nodeCount; n++) {
+                positionX[n] += deltaX[n];
+                positionY[n] += deltaY[n];
+                deltaX[n] = 0;
+                deltaY[n] = 0;
+            }
+        }
+    }
+
+    private void moveMuscles(double timeQuotient) {
+        for (int m = 0; m < muscleCount; m++) {
+            final int a = firstNode[m], b = secondNode[m];
+            double n1px = 0, n1py = 0, n2py = 0, n2px = 0;
+            final double prevLen = length[m];
+            length[m] = lengthAt(m, timeQuotient);
+            final double deltaLen = length[m] - prevLen;
+            final double sine = Math.min(Math.abs(positionY[a] - positionY[b]) / prevLen, 1);
+            final double cosine = Math.sqrt(1 - sine * sine);
+            if (positionY[a] == 0) {
+                if (positionY[b] == 0) { //both on ground
+                    n2px = friction[b] / (friction[b] + friction[a]) * deltaLen;
+                    n1px = friction[a] / (friction[b] + friction[a]) * deltaLen;
+                } else { //node 1 on ground, node 2 in air
+                    n2px = sine * deltaLen;
+                    n2py = cosine * deltaLen / 2;
+                    n1py = n2py;
+                }
+            } else {
+                if (positionY[b] == 0) { //node1 in air, node2 on ground
+                    n1px = sine * deltaLen;
+                    n2py = cosine * deltaLen / 2;
+                    n1py = n2py;
+                } else { //both in air
+                    n2px = sine * deltaLen / 2;
+                    n1px = n2px;
+                    n2py = cosine * deltaLen / 2;
+                    n1py = n2py;
+                }
+            }
+            deltaX[a] += n1px;
+            deltaY[a] += n1py;
+            deltaX[b] += n2px;
+            deltaY[b] += n2py;
+        }
+    }
+
+    /**
+     * Same as MuscleSchedule.lengthAt(double) on the packed schedule of muscle m.
+     */
+    private double lengthAt(int m, double timeQuotient) {
+        return timeQuotient < lowerBreak[m] ? interceptBefore[m] + slopeBefore[m] * timeQuotient
+                : timeQuotient > upperBreak[m] ? interceptAfter[m] + slopeAfter[m] * timeQuotient
+                : interceptBetween[m] + slopeBetween[m] * timeQuotient;
+    }
+
+    private void ensureCapacity(int creatures, int nodes, int muscles) {
+        if (nodeStart.length < creatures + 1) {
+            final int capacity = Math.max(creatures + 1, nodeStart.length * 2);
+            nodeStart = Arrays.copyOf(nodeStart, capacity);
+            muscleStart = Arrays.copyOf(muscleStart, capacity);
+        }
+        if (positionX.length < nodes) {
+            final int capacity = Math.max(nodes, positionX.length * 2);
+            positionX = Arrays.copyOf(positionX, capacity);
+            positionY = Arrays.copyOf(positionY, capacity);
+            deltaX = Arrays.copyOf(deltaX, capacity);
+            deltaY = Arrays.copyOf(deltaY, capacity);
+            friction = Arrays.copyOf(friction, capacity);
+        }
+        if (length.length < muscles) {
+            final int capacity = Math.max(muscles, length.length * 2);
+            length = Arrays.copyOf(length, capacity);
+            lowerBreak = Arrays.copyOf(lowerBreak, capacity);
+            upperBreak = Arrays.copyOf(upperBreak, capacity);
+            interceptBefore = Arrays.copyOf(interceptBefore, capacity);
+            slopeBefore = Arrays.copyOf(slopeBefore, capacity);
+            interceptBetween = Arrays.copyOf(interceptBetween, capacity);
+            slopeBetween = Arrays.copyOf(slopeBetween, capacity);
+            interceptAfter = Arrays.copyOf(interceptAfter, capacity);
+            slopeAfter = Arrays.copyOf(slopeAfter, capacity);
+            firstNode = Arrays.copyOf(firstNode, capacity);
+            secondNode = Arrays.copyOf(secondNode, capacity);
+        }
+    }
+}
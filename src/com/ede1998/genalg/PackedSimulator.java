@@ -0,0 +1,34 @@
+package com.ede1998.genalg;
+
+/**
+ * Copies the creature into primitive arrays, moves it there and copies the final positions back.
+ * The packed kernel evaluates the same expressions in the same order as Creature.move(int), so both produce the same
+ * positions. Results of the two should nevertheless only be compared up to TOLERANCE, which leaves room for kernels
+ * that reorder floating point operations.
+ */
+public class PackedSimulator implements Simulator {
+    /**
+     * Maximum relative difference between node positions computed by this simulator and by Creature.move(int).
+     */
+    public static final double TOLERANCE = 1e-9;
+    private final ThreadLocal<PackedPopulation> buffers = ThreadLocal.withInitial(PackedPopulation::new);
+
+    @Override
+    public void simulate(Creature creature, int time, int resolution) {
+        final PackedPopulation packed = buffers.get();
+        packed.load(creature);
+        packed.move(time, resolution);
+        packed.store(creature);
+    }
+
+    /**
+     * Moves the creatures of the records from (inclusive) to to (exclusive) of the genome store from their start
+     * positions and writes their fitness into the records. The creatures are moved together in one packed population.
+     */
+    public void simulate(GenomeStore store, int from, int to, int time, int resolution) {
+        final PackedPopulation packed = buffers.get();
+        packed.load(store, from, to);
+        packed.move(time, resolution);
+        packed.storeFitness(store, from);
+    }
+}
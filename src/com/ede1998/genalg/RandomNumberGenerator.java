@@ -1,47 +1,148 @@
 package com.ede1998.genalg; /**
  * Created by 152863eh on 15.03.2017.
  */
-import java.util.Random;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A splittable pseudo-random number generator (SplitMix64, the algorithm behind java.util.SplittableRandom).
+ * All random numbers of a run are drawn from streams which are split off a single master generator, so a run with
+ * the same master seed repeats bit for bit. Instances are not thread-safe and do not synchronize: every creature and
+ * every worker thread has to use its own stream obtained from split().
+ */
 public class RandomNumberGenerator {
-    private static Random rng = new Random();
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+    private static final double DOUBLE_UNIT = 0x1.0p-53;
+    /**
+     * Size of the state written by writeState(ByteBuffer).
+     */
+    static final int STATE_BYTES = 2 * Long.BYTES + 1 + Double.BYTES;
+    private long seed;
+    private final long gamma;
+    private double nextGaussian;
+    private boolean haveNextGaussian;
+
+    private RandomNumberGenerator(long seed, long gamma) {
+        this.seed = seed;
+        this.gamma = gamma;
+    }
+
+    /**
+     * Creates a master generator. Two generators created with the same seed produce the same numbers.
+     * @param seed master seed of the run
+     */
+    public RandomNumberGenerator(long seed) {
+        this(seed, GOLDEN_GAMMA);
+    }
+
+    /**
+     * Writes the complete state at the buffer's position, so readState(ByteBuffer) continues the same stream.
+     */
+    void writeState(ByteBuffer out) {
+        out.putLong(seed);
+        out.putLong(gamma);
+        out.put((byte) (haveNextGaussian ? 1 : 0));
+        out.putDouble(nextGaussian);
+    }
+
+    /**
+     * @return generator which produces the same numbers as the one whose state was written at the buffer's position
+     */
+    static RandomNumberGenerator readState(ByteBuffer in) {
+        final RandomNumberGenerator random = new RandomNumberGenerator(in.getLong(), in.getLong());
+        random.haveNextGaussian = in.get() != 0;
+        random.nextGaussian = in.getDouble();
+        return random;
+    }
 
-    public static int randInt(int min, int max){
+    /**
+     * Splits off a new, statistically independent stream. This stream advances by one step.
+     * @return new generator
+     */
+    public RandomNumberGenerator split() {
+        return new RandomNumberGenerator(nextLong(), mixGamma(nextSeed()));
+    }
+
+    public long nextLong() {
+        return mix64(nextSeed());
+    }
+
+    public int randInt(int min, int max){
         if (max < min) throw new IllegalArgumentException("Max must be larger than min.");
-        return (int) (Math.random() * (max - min + 1) + min);
+        return (int) (random() * (max - min + 1) + min);
     }
 
     /**
-     * Pseudo-randomly generates an integer between 0 and max (including both) using Math.random.
+     * Pseudo-randomly generates an integer between 0 and max (including both).
      * @param max maximum value
      * @return pseudo-random number
      */
-    public static int randInt(int max){
+    public int randInt(int max){
         return randInt(0, max);
     }
-    public static double random(){
-        return Math.random();
+
+    /**
+     * @return pseudo-random number between 0 (inclusive) and 1 (exclusive)
+     */
+    public double random(){
+        return (nextLong() >>> 11) * DOUBLE_UNIT;
     }
-    public static double random(double max) {
+    public double random(double max) {
         return random(0, max);
     }
-    public static double random(double min, double max) {
+    public double random(double min, double max) {
         if (max < min) throw new IllegalArgumentException("Max must be larger than min.");
-        return Math.random() * (max - min) + min;
+        return random() * (max - min) + min;
     }
 
-    public static boolean randBool(double probability) {
+    public boolean randBool(double probability) {
         return random() < probability;
     }
 
-    public static double randG() {
-        return rng.nextGaussian();
+    /**
+     * Generates a normally distributed number with mean 0 and standard deviation 1 (polar method).
+     * @return pseudo-random number
+     */
+    public double randG() {
+        if (haveNextGaussian) {
+            haveNextGaussian = false;
+            return nextGaussian;
+        }
+        double v1, v2, s;
+        do {
+            v1 = 2 * random() - 1;
+            v2 = 2 * random() - 1;
+            s = v1 * v1 + v2 * v2;
+        } while (s >= 1 || s == 0);
+        double multiplier = StrictMath.sqrt(-2 * StrictMath.log(s) / s);
+        nextGaussian = v2 * multiplier;
+        haveNextGaussian = true;
+        return v1 * multiplier;
     }
 
-    public static double randG(double stdDev, double shift) {
+    public double randG(double stdDev, double shift) {
         return randG() * stdDev + shift;
     }
 
-    public static boolean randBool() {
-        return rng.nextBoolean();
+    public boolean randBool() {
+        return nextLong() < 0;
+    }
+
+    private long nextSeed() {
+        return seed += gamma;
+    }
+
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    private static long mixGamma(long z) {
+        z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+        z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        z = (z ^ (z >>> 33)) | 1L;
+        int n = Long.bitCount(z ^ (z >>> 1));
+        return (n < 24) ? z ^ 0xaaaaaaaaaaaaaaaaL : z;
     }
 }
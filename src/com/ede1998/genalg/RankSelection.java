@@ -0,0 +1,71 @@
+package com.ede1998.genalg;
+
+import java.util.Arrays;
+
+/**
+ * Creatures survive at random with a chance proportional to their rank: the worst creature has weight 1, the best
+ * one weight n, and creatures with the same score share the average of their ranks. Unlike fitness proportional
+ * selection this does not depend on how far apart the scores are.
+ * Sampling without replacement uses the keys of Efraimidis and Spirakis (log(u) / weight), of which the highest are
+ * picked by partial selection.
+ */
+public class RankSelection implements SelectionStrategy {
+
+    @Override
+    public int[] select(double[] scores, int survivors, RandomNumberGenerator random) {
+        final double[] weight = weights(scores);
+        final double[] keys = new double[scores.length];
+        final int[] index = new int[scores.length];
+        for (int i = 0; i < scores.length; i++) {
+            keys[i] = Math.log(1 - random.random()) / weight[i];
+            index[i] = i;
+        }
+        TruncationSelection.selectTop(index, index.length, keys, survivors);
+        return Arrays.copyOf(index, survivors);
+    }
+
+    /**
+     * @return rank of every score, 1 for the lowest; equal scores all get the average of the ranks they span
+     */
+    static double[] weights(double[] scores) {
+        final int[] order = new int[scores.length];
+        for (int i = 0; i < order.length; i++)
+            order[i] = i;
+        sortByKey(order, scores);
+        final double[] weight = new double[scores.length];
+        for (int first = 0, last; first < order.length; first = last) {
+            last = first + 1;
+            while (last < order.length && scores[order[last]] == scores[order[first]])
+                last++;
+            //ranks first + 1 to last
+            final double average = (first + 1 + last) / 2.0;
+            for (int r = first; r < last; r++)
+                weight[order[r]] = average;
+        }
+        return weight;
+    }
+
+    /**
+     * Sorts the indices by ascending key (bottom-up merge sort, so it needs no boxing and keeps equal keys in order).
+     */
+    static void sortByKey(int[] index, double[] key) {
+        int[] from = index, to = new int[index.length];
+        for (int width = 1; width < index.length; width *= 2) {
+            for (int left = 0; left < index.length; left += 2 * width) {
+                final int mid = Math.min(left + width, index.length), right = Math.min(left + 2 * width, index.length);
+                int i = left, j = mid, k = left;
+                while (i < mid && j < right)
+                    to[k++] = key[from[j]] < key[from[i]] ? from[j++] : from[i++];
+                while (i < mid)
+                    to[k++] = from[i++];
+                while (j < right)
+                    to[k++] = from[j++];
+            }
+            final int[] swap = from;
+            from = to;
+            to = swap;
+        }
+        if (from != index)
+            System.arraycopy(from, 0, index, 0, index.length);
+    }
+}
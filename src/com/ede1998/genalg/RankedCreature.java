@@ -0,0 +1,25 @@
+package com.ede1998.genalg;
+
+/**
+ * Entry of a ranked concurrent collection of creatures: higher fitness first, lower key first among equal fitness.
+ * Creatures whose fitness is not a number rank last. Two entries with the same fitness and key are equal, so a key
+ * that identifies the genome (e.g. its fingerprint) keeps a sorted set free of duplicates.
+ */
+final class RankedCreature implements Comparable<RankedCreature> {
+    final double score;
+    final long key;
+    final Creature creature;
+
+    RankedCreature(Creature creature, long key) {
+        final double fitness = creature.getFitness();
+        this.score = Double.isNaN(fitness) ? Double.NEGATIVE_INFINITY : fitness;
+        this.key = key;
+        this.creature = creature;
+    }
+
+    @Override
+    public int compareTo(RankedCreature other) {
+        final int byScore = Double.compare(other.score, score);
+        return byScore != 0 ? byScore : Long.compare(key, other.key);
+    }
+}
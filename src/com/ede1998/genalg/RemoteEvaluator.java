@@ -0,0 +1,304 @@
+package com.ede1998.genalg;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Moves the creatures in worker processes (see EvaluationWorker) which connect over TCP. The creatures are cut into
+ * batches; every worker gets several batches at once so it never waits for the next one, and returns the fitness of
+ * every creature. If a worker dies, or does not answer within the result timeout, its unanswered batches go to the
+ * remaining workers. Only the fitness comes back,
+ * the creatures themselves stay at their start positions.
+ * The workers run the same simulator code on the same genomes, so the fitness is exactly the same as if the creatures
+ * were moved in this process with that simulator.
+ */
+public class RemoteEvaluator implements Evaluator {
+    public static final int DEFAULT_BATCH_SIZE = 8;
+    public static final int DEFAULT_BATCHES_IN_FLIGHT = 2;
+    /**
+     * Longest time a worker may take to answer the oldest of its batches before it is taken for dead.
+     */
+    public static final int DEFAULT_RESULT_TIMEOUT_MILLIS = 60000;
+    private static final int CONNECT_TIMEOUT_MILLIS = 30000;
+    private static final long POLL_MILLIS = 50;
+    private final ServerSocket server;
+    private final List<Process> processes = new ArrayList<>();
+    private final List<Connection> connections = new ArrayList<>();
+    private final ExecutorService pool;
+    private final int batchSize;
+    private final int batchesInFlight;
+    private final int resultTimeoutMillis;
+
+    /**
+     * Starts the given number of worker processes on this machine, with the class path of this process.
+     * @param workers number of worker processes
+     * @param simulator name of the simulator the workers use, see Simulator.forName(String)
+     */
+    public RemoteEvaluator(int workers, String simulator) throws IOException {
+        this(workers, simulator, DEFAULT_BATCH_SIZE, DEFAULT_BATCHES_IN_FLIGHT, DEFAULT_RESULT_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * Starts the given number of worker processes on this machine, with the class path of this process.
+     * @param workers number of worker processes
+     * @param simulator name of the simulator the workers use, see Simulator.forName(String)
+     * @param batchSize number of creatures sent to a worker at once
+     * @param batchesInFlight number of batches a worker has at most, including the one it is working on
+     * @param resultTimeoutMillis longest time a worker may take to answer its oldest batch; a worker which takes
+     *                            longer is treated as dead and its batches go to the other workers
+     */
+    public RemoteEvaluator(int workers, String simulator, int batchSize, int batchesInFlight, int resultTimeoutMillis)
+            throws IOException {
+        if (workers <= 0) throw new IllegalArgumentException("Worker count must be greater than 0.");
+        if (simulator == null) throw new IllegalArgumentException("Null pointer simulator.");
+        if (batchSize <= 0) throw new IllegalArgumentException("Batch size must be greater than 0.");
+        if (batchesInFlight <= 0) throw new IllegalArgumentException("Batches in flight must be greater than 0.");
+        if (resultTimeoutMillis <= 0) throw new IllegalArgumentException("Result timeout must be greater than 0.");
+        Simulator.forName(simulator); //fail here instead of in every worker
+        this.batchSize = batchSize;
+        this.batchesInFlight = batchesInFlight;
+        this.resultTimeoutMillis = resultTimeoutMillis;
+        server = new ServerSocket(0, workers, InetAddress.getLoopbackAddress());
+        try {
+            final String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+            for (int i = 0; i < workers; i++) {
+                processes.add(new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                        EvaluationWorker.class.getName(), server.getInetAddress().getHostAddress(),
+                        Integer.toString(server.getLocalPort()), simulator)
+                        .redirectOutput(ProcessBuilder.Redirect.INHERIT)
+                        .redirectError(ProcessBuilder.Redirect.INHERIT)
+                        .start());
+            }
+            server.setSoTimeout(CONNECT_TIMEOUT_MILLIS);
+            for (int i = 0; i < workers; i++)
+                connections.add(new Connection(server.accept()));
+        } catch (IOException | RuntimeException e) {
+            shutdown();
+            throw e;
+        }
+        final AtomicInteger threadNumber = new AtomicInteger();
+        pool = Executors.newFixedThreadPool(workers, (Runnable r) -> {
+            Thread t = new Thread(r, "genalg-remote-" + threadNumber.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * @return number of workers which have not died yet
+     */
+    public int getLiveWorkers() {
+        int live = 0;
+        for (Connection c : connections)
+            if (!c.dead) live++;
+        return live;
+    }
+
+    @Override
+    public void evaluate(List<Creature> walkers, int time, int resolution) {
+        if (time <= 0) throw new IllegalArgumentException("Time to try must be greater than 0.");
+        if (resolution <= 0) throw new IllegalArgumentException("Resolution must be greater than 0.");
+        final LinkedBlockingQueue<Batch> pending = new LinkedBlockingQueue<>();
+        for (int first = 0; first < walkers.size(); first += batchSize)
+            pending.add(new Batch(pending.size(), walkers.subList(first, Math.min(first + batchSize, walkers.size()))));
+        final AtomicInteger unfinished = new AtomicInteger(pending.size());
+        if (unfinished.get() == 0) return;
+        final List<Connection> working = new ArrayList<>(connections.size());
+        final List<Future<?>> running = new ArrayList<>(connections.size());
+        for (Connection c : connections) {
+            if (!c.dead) {
+                working.add(c);
+                running.add(pool.submit(() -> c.work(pending, unfinished, time, resolution)));
+            }
+        }
+        if (running.isEmpty()) throw new IllegalStateException("All workers have died.");
+        for (Future<?> f : running) {
+            try {
+                f.get();
+            } catch (InterruptedException e) {
+                //a connection still reading may be in the middle of an answer, so it cannot be used again
+                for (int i = 0; i < running.size(); i++) {
+                    if (!running.get(i).isDone()) {
+                        running.get(i).cancel(true);
+                        working.get(i).close();
+                    }
+                }
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for creatures to move.", e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof InterruptedException)
+                    throw new IllegalStateException("Interrupted while waiting for creatures to move.", e.getCause());
+                if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+        if (unfinished.get() > 0) throw new IllegalStateException("All workers have died.");
+    }
+
+    /**
+     * @return the worker processes, in the order they were started
+     */
+    List<Process> getProcesses() {
+        return Collections.unmodifiableList(processes);
+    }
+
+    /**
+     * Closes the connections, which makes the workers stop, and makes sure the worker processes are gone.
+     */
+    @Override
+    public void shutdown() {
+        if (pool != null) pool.shutdown();
+        for (Connection c : connections)
+            c.close();
+        try {
+            server.close();
+        } catch (IOException e) {
+            //nothing left to clean up
+        }
+        for (Process p : processes) {
+            try {
+                if (!p.waitFor(1, TimeUnit.SECONDS)) p.destroy();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                p.destroy();
+            }
+        }
+    }
+
+    /**
+     * Creatures which are sent to a worker together.
+     */
+    private static final class Batch {
+        final int id;
+        final List<Creature> creatures;
+
+        Batch(int id, List<Creature> creatures) {
+            this.id = id;
+            this.creatures = creatures;
+        }
+    }
+
+    /**
+     * Connection to one worker. Only used by one thread at a time.
+     */
+    private final class Connection {
+        private final Socket socket;
+        private final DataInputStream in;
+        private final DataOutputStream out;
+        private final ArrayDeque<Batch> inFlight = new ArrayDeque<>();
+        private byte[] frame = new byte[RemoteProtocol.BATCH_HEADER_BYTES + batchSize * GenomeCodec.MAX_BYTES];
+        private final int[] length = new int[1];
+        private volatile boolean dead;
+
+        Connection(Socket socket) throws IOException {
+            this.socket = socket;
+            socket.setTcpNoDelay(true);
+            in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            socket.setSoTimeout(CONNECT_TIMEOUT_MILLIS);
+            try {
+                frame = RemoteProtocol.readFrame(in, frame, length);
+            } catch (SocketTimeoutException e) {
+                throw new IOException("Worker did not say hello.", e);
+            }
+            final ByteBuffer hello = ByteBuffer.wrap(frame, 0, length[0]);
+            if (length[0] < 8 || hello.getInt() != RemoteProtocol.MAGIC || hello.getInt() != RemoteProtocol.VERSION)
+                throw new IOException("Worker speaks a different protocol.");
+            socket.setSoTimeout(resultTimeoutMillis);
+        }
+
+        /**
+         * Keeps up to batchesInFlight batches at the worker until all batches of the evaluation are done. If the
+         * worker dies or does not answer in time, its batches go back to the pending ones.
+         * @return null, so the method can be submitted as Callable and an interruption reaches the coordinator
+         * @throws InterruptedException if the evaluation was cancelled; batches which were already sent are given up
+         * with the connection, whose answers would be out of step with the next evaluation otherwise
+         */
+        Void work(LinkedBlockingQueue<Batch> pending, AtomicInteger unfinished, int time, int resolution)
+                throws InterruptedException {
+            try {
+                while (unfinished.get() > 0) {
+                    if (Thread.interrupted()) throw new InterruptedException();
+                    boolean sent = false;
+                    Batch batch;
+                    while (inFlight.size() < batchesInFlight && (batch = pending.poll()) != null) {
+                        send(batch, time, resolution);
+                        inFlight.add(batch);
+                        sent = true;
+                    }
+                    if (sent) out.flush();
+                    if (!inFlight.isEmpty()) {
+                        //the batch stays in flight until its result is complete, so it is sent again if the worker dies
+                        receive(inFlight.peek());
+                        inFlight.remove();
+                        unfinished.decrementAndGet();
+                    } else if ((batch = pending.poll(POLL_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+                        //a batch of a dead worker or one another worker did not take yet
+                        pending.add(batch);
+                    }
+                }
+            } catch (IOException e) {
+                //includes SocketTimeoutException of a worker which hangs without closing the connection
+                giveUp(pending);
+            } catch (InterruptedException e) {
+                if (!inFlight.isEmpty()) giveUp(pending);
+                throw e;
+            }
+            return null;
+        }
+
+        private void giveUp(LinkedBlockingQueue<Batch> pending) {
+            dead = true;
+            pending.addAll(inFlight);
+            inFlight.clear();
+            close();
+        }
+
+        private void send(Batch batch, int time, int resolution) throws IOException {
+            final ByteBuffer buffer = ByteBuffer.wrap(frame);
+            buffer.putInt(batch.id).putInt(time).putInt(resolution).putInt(batch.creatures.size());
+            for (Creature c : batch.creatures)
+                GenomeCodec.encode(c, buffer);
+            RemoteProtocol.writeFrame(out, frame, buffer.position());
+        }
+
+        private void receive(Batch batch) throws IOException {
+            frame = RemoteProtocol.readFrame(in, frame, length);
+            final ByteBuffer result = ByteBuffer.wrap(frame, 0, length[0]);
+            if (length[0] != RemoteProtocol.RESULT_HEADER_BYTES + batch.creatures.size() * Double.BYTES
+                    || result.getInt() != batch.id || result.getInt() != batch.creatures.size())
+                throw new IOException("Worker answered the wrong batch.");
+            for (Creature c : batch.creatures)
+                c.setFitness(result.getDouble());
+        }
+
+        void close() {
+            dead = true;
+            try {
+                socket.close();
+            } catch (IOException e) {
+                //already closed
+            }
+        }
+    }
+}
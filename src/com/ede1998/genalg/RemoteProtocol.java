@@ -0,0 +1,43 @@
+package com.ede1998.genalg;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Messages between RemoteEvaluator and EvaluationWorker. Every message is a frame: its length as int followed by that
+ * many bytes. A worker first sends a hello frame with MAGIC and VERSION. Then the coordinator sends batch frames
+ * (batch id, time, resolution, creature count, the genomes in GenomeCodec form) and the worker answers each with a
+ * result frame (batch id, creature count, one fitness per creature) in the order the batches arrived. The worker stops
+ * when the connection is closed.
+ */
+final class RemoteProtocol {
+    static final int MAGIC = 0x47454e41; //"GENA"
+    static final int VERSION = 1;
+    static final int BATCH_HEADER_BYTES = 4 * Integer.BYTES;
+    static final int RESULT_HEADER_BYTES = 2 * Integer.BYTES;
+    /**
+     * Largest frame either side accepts, so a corrupt length does not lead to a huge allocation.
+     */
+    static final int MAX_FRAME_BYTES = 1 << 24;
+
+    private RemoteProtocol() {}
+
+    static void writeFrame(DataOutputStream out, byte[] frame, int length) throws IOException {
+        out.writeInt(length);
+        out.write(frame, 0, length);
+    }
+
+    /**
+     * @param buffer reused if large enough
+     * @return buffer holding the frame from index 0, at least as long as the frame
+     */
+    static byte[] readFrame(DataInputStream in, byte[] buffer, int[] length) throws IOException {
+        final int size = in.readInt();
+        if (size < 0 || size > MAX_FRAME_BYTES) throw new IOException("Invalid frame length " + size + ".");
+        if (buffer.length < size) buffer = new byte[size];
+        in.readFully(buffer, 0, size);
+        length[0] = size;
+        return buffer;
+    }
+}
@@ -0,0 +1,46 @@
+package com.ede1998.genalg;
+
+/**
+ * Decides which creatures of a generation survive. Strategies only see the scores (fitness) of the creatures and
+ * answer with indices, so the generation never has to remove creatures from its list one by one.
+ */
+public interface SelectionStrategy {
+
+    /**
+     * @param scores fitness of every creature, higher is better; never NaN
+     * @param survivors number of creatures which survive, between 1 and scores.length
+     * @param random stream of the generation
+     * @return indices of the surviving creatures, exactly survivors many and each at most once, in any order
+     */
+    int[] select(double[] scores, int survivors, RandomNumberGenerator random);
+
+    /**
+     * Creates a selection strategy by name, with the random death probability of the default configuration.
+     * @param name "truncation", "tournament" or "rank", see forName(String, EvolutionConfig)
+     * @return the new strategy
+     */
+    static SelectionStrategy forName(String name) {
+        return forName(name, EvolutionConfig.DEFAULT);
+    }
+
+    /**
+     * Creates a selection strategy by name.
+     * @param name "truncation" (the best survive, some others die randomly beforehand), "tournament" (tournaments
+     *             of three) or "rank" (survival chance proportional to rank)
+     * @param config run the strategy is for; truncation takes its random death probability from it
+     * @return the new strategy
+     */
+    static SelectionStrategy forName(String name, EvolutionConfig config) {
+        if (config == null) throw new IllegalArgumentException("Null pointer config.");
+        switch (name) {
+            case "truncation":
+                return new TruncationSelection(config.getRandomDeathProbability());
+            case "tournament":
+                return new TournamentSelection(3);
+            case "rank":
+                return new RankSelection();
+            default:
+                throw new IllegalArgumentException("Unknown selection strategy: " + name);
+        }
+    }
+}
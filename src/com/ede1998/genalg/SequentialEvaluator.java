@@ -0,0 +1,24 @@
+package com.ede1998.genalg;
+
+import java.util.List;
+
+/**
+ * Moves the creatures one after another on the calling thread.
+ */
+public class SequentialEvaluator implements Evaluator {
+    private final Simulator simulator;
+
+    public SequentialEvaluator() {
+        this(new ObjectSimulator());
+    }
+
+    public SequentialEvaluator(Simulator simulator) {
+        if (simulator == null) throw new IllegalArgumentException("Null pointer simulator.");
+        this.simulator = simulator;
+    }
+
+    @Override
+    public void evaluate(List<Creature> walkers, int time, int resolution) {
+        walkers.forEach((w) -> simulator.simulate(w, time, resolution));
+    }
+}
@@ -0,0 +1,44 @@
+package com.ede1998.genalg;
+
+/**
+ * A simulator runs the physics of a single creature, i.e. lets it try to walk for a given time span.
+ * Implementations differ in how the creature is represented while it moves, but leave the creature in the same state
+ * as Creature.move(int, int) would.
+ */
+public interface Simulator {
+
+    /**
+     * @param creature creature to move
+     * @param time number of repetitions of creature movement
+     * @param resolution number of clock ticks per repetition
+     */
+    void simulate(Creature creature, int time, int resolution);
+
+    /**
+     * Moves the creature at the full resolution.
+     * @param creature creature to move
+     * @param time number of repetitions of creature movement
+     */
+    default void simulate(Creature creature, int time) {
+        simulate(creature, time, Creature.RESOLUTION);
+    }
+
+    /**
+     * Creates a simulator by name.
+     * @param name "object", "extrapolating" or "packed"; "extrapolating" is the object simulator which extrapolates
+     *             periodic gaits
+     * @return the new simulator
+     */
+    static Simulator forName(String name) {
+        switch (name) {
+            case "object":
+                return new ObjectSimulator();
+            case "extrapolating":
+                return new ObjectSimulator(Creature.GAIT_TOLERANCE);
+            case "packed":
+                return new PackedSimulator();
+            default:
+                throw new IllegalArgumentException("Unknown simulator: " + name);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.ede1998.genalg;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Single slot through which the evolution thread hands snapshots to a consumer such as the GUI, without locks.
+ * Publishing never waits: a new snapshot simply replaces one the consumer has not taken yet, which counts as dropped.
+ * The consumer takes the newest snapshot whenever it is ready for the next frame.
+ */
+public class SnapshotExchange {
+    private final AtomicReference<EvolutionSnapshot> slot = new AtomicReference<>();
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    public void publish(EvolutionSnapshot snapshot) {
+        if (snapshot == null) throw new IllegalArgumentException("Null pointer snapshot.");
+        published.incrementAndGet();
+        if (slot.getAndSet(snapshot) != null)
+            dropped.incrementAndGet();
+    }
+
+    /**
+     * @return the newest snapshot published since the last call, null if there is none
+     */
+    public EvolutionSnapshot take() {
+        return slot.getAndSet(null);
+    }
+
+    public long getPublished() {
+        return published.get();
+    }
+
+    /**
+     * @return number of snapshots replaced by a newer one before they were taken
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+}
@@ -0,0 +1,240 @@
+package com.ede1998.genalg;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Screens all creatures with a cheap, coarse simulation first and only moves the promising ones at full fidelity.
+ * The coarse stage uses fewer clock ticks per movement cycle and/or fewer cycles. The creatures which walked furthest
+ * in it are promoted, plus a random sample of the others so that the screening itself can be checked. The fitness of
+ * creatures which are not promoted is estimated by scaling their coarse distance to the full time span.
+ * <p>
+ * After every evaluation a Report tells how well the coarse ranking predicted the fine one.
+ */
+public class StagedEvaluator implements Evaluator {
+    static final int DEFAULT_COARSE_TIME = 3;
+    static final int DEFAULT_COARSE_RESOLUTION = 1500;
+    static final double DEFAULT_PROMOTED_FRACTION = 0.3;
+    static final double DEFAULT_EXPLORATION_PROBABILITY = 0.05;
+    static final long DEFAULT_SEED = 20170314;
+    private final Evaluator inner;
+    private final int coarseTime;
+    private final int coarseResolution;
+    private final double promotedFraction;
+    private final double explorationProbability;
+    private final RandomNumberGenerator random;
+    private volatile Report lastReport;
+
+    /**
+     * Screens with DEFAULT_COARSE_TIME cycles of DEFAULT_COARSE_RESOLUTION clock ticks, promotes the best
+     * DEFAULT_PROMOTED_FRACTION and explores with DEFAULT_EXPLORATION_PROBABILITY, picked by a stream with
+     * DEFAULT_SEED.
+     * @param inner evaluator which runs both stages
+     */
+    public StagedEvaluator(Evaluator inner) {
+        this(inner, DEFAULT_COARSE_TIME, DEFAULT_COARSE_RESOLUTION, DEFAULT_PROMOTED_FRACTION,
+                DEFAULT_EXPLORATION_PROBABILITY, DEFAULT_SEED);
+    }
+
+    /**
+     * @param inner evaluator which runs both stages
+     * @param coarseTime number of movement cycles of the coarse stage, at most the full time
+     * @param coarseResolution clock ticks per movement cycle of the coarse stage
+     * @param promotedFraction fraction of creatures with the best coarse result which are moved at full fidelity
+     * @param explorationProbability probability for every other creature to be moved at full fidelity as well
+     * @param seed seed of the stream which picks the explored creatures
+     */
+    public StagedEvaluator(Evaluator inner, int coarseTime, int coarseResolution, double promotedFraction,
+                           double explorationProbability, long seed) {
+        if (inner == null) throw new IllegalArgumentException("Null pointer evaluator.");
+        if (coarseTime <= 0) throw new IllegalArgumentException("Coarse time must be greater than 0.");
+        if (coarseResolution <= 0) throw new IllegalArgumentException("Coarse resolution must be greater than 0.");
+        if (promotedFraction < 0 || promotedFraction > 1)
+            throw new IllegalArgumentException("Promoted fraction must be between 0 and 1.");
+        if (explorationProbability < 0 || explorationProbability > 1)
+            throw new IllegalArgumentException("Exploration probability must be between 0 and 1.");
+        this.inner = inner;
+        this.coarseTime = coarseTime;
+        this.coarseResolution = coarseResolution;
+        this.promotedFraction = promotedFraction;
+        this.explorationProbability = explorationProbability;
+        this.random = new RandomNumberGenerator(seed);
+    }
+
+    /**
+     * @return statistics of the last evaluation, null before the first one
+     */
+    public Report getLastReport() {
+        return lastReport;
+    }
+
+    @Override
+    public void evaluate(List<Creature> walkers, int time, int resolution) {
+        final int n = walkers.size();
+        if (n == 0) return;
+        final double[] start = new double[n];
+        for (int i = 0; i < n; i++)
+            start[i] = walkers.get(i).getPositionX();
+
+        inner.evaluate(walkers, Math.min(coarseTime, time), coarseResolution);
+        final double[] coarse = new double[n];
+        for (int i = 0; i < n; i++)
+            coarse[i] = walkers.get(i).getFitness() - start[i];
+
+        //best coarse distance first
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++)
+            order[i] = i;
+        Arrays.sort(order, (a, b) -> Double.compare(coarse[b], coarse[a]));
+        final int promoted = (int) Math.ceil(promotedFraction * n);
+        ArrayList<Creature> fine = new ArrayList<>();
+        int[] fineIndex = new int[n];
+        int explored = 0;
+        for (int rank = 0; rank < n; rank++) {
+            final int i = order[rank];
+            if (rank < promoted || random.randBool(explorationProbability)) {
+                if (rank >= promoted) explored++;
+                fineIndex[fine.size()] = i;
+                fine.add(walkers.get(i));
+            } else {
+                walkers.get(i).estimateFitness(start[i] + coarse[i] * time / Math.min(coarseTime, time));
+            }
+        }
+
+        fine.forEach(Creature::reset);
+        inner.evaluate(fine, time, resolution);
+        final double[] fineCoarse = new double[fine.size()];
+        final double[] fineDistance = new double[fine.size()];
+        for (int k = 0; k < fine.size(); k++) {
+            fineCoarse[k] = coarse[fineIndex[k]];
+            fineDistance[k] = fine.get(k).getFitness() - start[fineIndex[k]];
+        }
+        lastReport = new Report(n, fine.size(), explored, rankCorrelation(fineCoarse, fineDistance),
+                explorationUpsets(fineDistance, promoted, fine.size()));
+    }
+
+    @Override
+    public void shutdown() {
+        inner.shutdown();
+    }
+
+    /**
+     * Counts explored creatures which walked further at full fidelity than the worst regularly promoted one, i.e.
+     * creatures the coarse stage alone would have discarded wrongly. The fine arrays hold the regularly promoted
+     * creatures first.
+     */
+    private static int explorationUpsets(double[] fineDistance, int promoted, int fineCount) {
+        promoted = Math.min(promoted, fineCount);
+        if (promoted == 0) return 0;
+        double worstPromoted = Double.POSITIVE_INFINITY;
+        for (int k = 0; k < promoted; k++)
+            worstPromoted = Math.min(worstPromoted, fineDistance[k]);
+        int upsets = 0;
+        for (int k = promoted; k < fineCount; k++)
+            if (fineDistance[k] > worstPromoted) upsets++;
+        return upsets;
+    }
+
+    /**
+     * @return Spearman's rank correlation of both samples, i.e. the correlation of their ranks where tied values share
+     * their average rank; 1 if they are ranked the same
+     */
+    static double rankCorrelation(double[] x, double[] y) {
+        final int n = x.length;
+        if (n < 2) return 1;
+        final double[] rankX = ranks(x), rankY = ranks(y);
+        //the average rank of both samples is (n - 1) / 2, ties included
+        final double mean = (n - 1) / 2.0;
+        double covariance = 0, varianceX = 0, varianceY = 0;
+        for (int i = 0; i < n; i++) {
+            final double dx = rankX[i] - mean, dy = rankY[i] - mean;
+            covariance += dx * dy;
+            varianceX += dx * dx;
+            varianceY += dy * dy;
+        }
+        if (varianceX == 0 || varianceY == 0) return varianceX == varianceY ? 1 : 0;
+        return covariance / Math.sqrt(varianceX * varianceY);
+    }
+
+    /**
+     * @return rank of every value, starting at 0; tied values all get the average of the ranks they span
+     */
+    static double[] ranks(double[] values) {
+        Integer[] order = new Integer[values.length];
+        for (int i = 0; i < values.length; i++)
+            order[i] = i;
+        Arrays.sort(order, (a, b) -> Double.compare(values[a], values[b]));
+        final double[] rank = new double[values.length];
+        for (int first = 0, last; first < order.length; first = last) {
+            last = first + 1;
+            while (last < order.length && Double.compare(values[order[last]], values[order[first]]) == 0)
+                last++;
+            final double average = (first + last - 1) / 2.0;
+            for (int r = first; r < last; r++)
+                rank[order[r]] = average;
+        }
+        return rank;
+    }
+
+    /**
+     * How the coarse stage of an evaluation compared to the fine one.
+     */
+    public static class Report {
+        private final int creatures;
+        private final int fineEvaluations;
+        private final int explored;
+        private final double rankCorrelation;
+        private final int explorationUpsets;
+
+        Report(int creatures, int fineEvaluations, int explored, double rankCorrelation, int explorationUpsets) {
+            this.creatures = creatures;
+            this.fineEvaluations = fineEvaluations;
+            this.explored = explored;
+            this.rankCorrelation = rankCorrelation;
+            this.explorationUpsets = explorationUpsets;
+        }
+
+        /**
+         * @return number of creatures, all of which were moved in the coarse stage
+         */
+        public int getCreatures() {
+            return creatures;
+        }
+
+        /**
+         * @return number of creatures moved at full fidelity
+         */
+        public int getFineEvaluations() {
+            return fineEvaluations;
+        }
+
+        /**
+         * @return number of creatures moved at full fidelity only because they were picked at random
+         */
+        public int getExplored() {
+            return explored;
+        }
+
+        /**
+         * @return Spearman's rank correlation between coarse and fine distance of all creatures moved at full
+         * fidelity; 1 means the coarse stage ranked them perfectly
+         */
+        public double getRankCorrelation() {
+            return rankCorrelation;
+        }
+
+        /**
+         * @return number of randomly explored creatures which beat the worst promoted one at full fidelity
+         */
+        public int getExplorationUpsets() {
+            return explorationUpsets;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d creatures, %d fine (%d explored), rank correlation %.3f, %d upsets",
+                    creatures, fineEvaluations, explored, rankCorrelation, explorationUpsets);
+        }
+    }
+}
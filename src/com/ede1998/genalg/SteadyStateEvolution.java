@@ -0,0 +1,216 @@
+package com.ede1998.genalg;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Steady state alternative to Generation. There is no barrier after every generation: each worker thread repeatedly
+ * clones and mutates a random creature of the current elite, moves the offspring and inserts it into the ranked
+ * population, which then drops its worst creature. A slow creature therefore only holds up its own worker.
+ * Until the population is full, the workers create random creatures instead of offspring.
+ * The order in which offspring arrive depends on thread timing, so unlike Generation two runs with the same seed
+ * usually differ.
+ */
+public class SteadyStateEvolution {
+    private final ExecutorService pool;
+    private final int threads;
+    private final int populationSize;
+    private final int eliteSize;
+    private final EvolutionConfig config;
+    private final Simulator simulator;
+    private final RandomNumberGenerator random;
+    private final ConcurrentSkipListSet<RankedCreature> population = new ConcurrentSkipListSet<>();
+    //the skip list counts its elements in linear time, so its size is tracked separately
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicInteger created = new AtomicInteger();
+    private final AtomicLong arrivals = new AtomicLong();
+    private final AtomicLong evaluations = new AtomicLong();
+    private final AtomicLong busyNanos = new AtomicLong();
+
+    /**
+     * Uses the default configuration and the same elite size as the generational mode, i.e. all creatures that would
+     * survive a generation.
+     * @param populationSize number of creatures kept in the ranked population
+     * @param threads number of worker threads
+     * @param seed master seed of all random numbers of the run
+     * @param simulator moves a single creature
+     */
+    public SteadyStateEvolution(int populationSize, int threads, long seed, Simulator simulator) {
+        this(EvolutionConfig.DEFAULT.withPopulation(populationSize), threads, seed, simulator);
+    }
+
+    /**
+     * Uses the default configuration.
+     * @param populationSize number of creatures kept in the ranked population
+     * @param eliteSize number of best creatures parents are chosen from, between 1 and populationSize
+     * @param threads number of worker threads
+     * @param seed master seed of all random numbers of the run
+     * @param simulator moves a single creature
+     */
+    public SteadyStateEvolution(int populationSize, int eliteSize, int threads, long seed, Simulator simulator) {
+        this(EvolutionConfig.DEFAULT.withPopulation(populationSize), eliteSize, threads, seed, simulator);
+    }
+
+    /**
+     * Uses the same elite size as the generational mode, i.e. all creatures that would survive a generation.
+     * @param config population size, time and resolution of the walks and mutation parameters of the run
+     * @param threads number of worker threads
+     * @param seed master seed of all random numbers of the run
+     * @param simulator moves a single creature
+     */
+    public SteadyStateEvolution(EvolutionConfig config, int threads, long seed, Simulator simulator) {
+        this(config, config == null ? 1 : config.getSurvivors(), threads, seed, simulator);
+    }
+
+    /**
+     * @param config population size, time and resolution of the walks and mutation parameters of the run; the death
+     *               percentage and random death probability are not used, the population always drops its worst
+     * @param eliteSize number of best creatures parents are chosen from, between 1 and the population size
+     * @param threads number of worker threads
+     * @param seed master seed of all random numbers of the run
+     * @param simulator moves a single creature
+     */
+    public SteadyStateEvolution(EvolutionConfig config, int eliteSize, int threads, long seed, Simulator simulator) {
+        if (config == null) throw new IllegalArgumentException("Null pointer config.");
+        final int populationSize = config.getPopulation();
+        if (eliteSize <= 0 || eliteSize > populationSize)
+            throw new IllegalArgumentException("Elite size must be between 1 and the population size.");
+        if (threads <= 0) throw new IllegalArgumentException("Thread count must be greater than 0.");
+        if (simulator == null) throw new IllegalArgumentException("Null pointer simulator.");
+        this.config = config;
+        this.populationSize = populationSize;
+        this.eliteSize = eliteSize;
+        this.threads = threads;
+        this.simulator = simulator;
+        this.random = new RandomNumberGenerator(seed);
+        final AtomicInteger threadNumber = new AtomicInteger();
+        pool = Executors.newFixedThreadPool(threads, (Runnable r) -> {
+            Thread t = new Thread(r, "genalg-steady-state-" + threadNumber.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Evaluates the given number of creatures on all worker threads and returns when all of them are in the
+     * population. Can be called repeatedly to continue the run.
+     * @param evaluationsToDo number of creatures to create or breed and move
+     */
+    public void run(long evaluationsToDo) {
+        if (evaluationsToDo < 0) throw new IllegalArgumentException("Number of evaluations must not be negative.");
+        final AtomicLong remaining = new AtomicLong(evaluationsToDo);
+        final long start = System.nanoTime();
+        List<Future<?>> running = new ArrayList<>(threads);
+        for (int i = 0; i < threads; i++) {
+            final RandomNumberGenerator stream = random.split();
+            running.add(pool.submit(() -> work(stream, remaining)));
+        }
+        try {
+            for (Future<?> f : running) {
+                try {
+                    f.get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    remaining.set(0);
+                    throw new IllegalStateException("Interrupted while waiting for creatures to move.", e);
+                } catch (ExecutionException e) {
+                    remaining.set(0);
+                    if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+                    throw new IllegalStateException(e.getCause());
+                }
+            }
+        } finally {
+            busyNanos.addAndGet(System.nanoTime() - start);
+        }
+    }
+
+    private void work(RandomNumberGenerator stream, AtomicLong remaining) {
+        while (remaining.getAndDecrement() > 0) {
+            Creature child = null;
+            if (created.get() < populationSize && created.getAndIncrement() < populationSize)
+                child = new Creature(stream.split());
+            else {
+                final Creature parent = pickParent(stream);
+                if (parent != null) {
+                    child = parent.clone();
+                    child.mutate(stream.split(), config.getRandomMutationProbability(),
+                            config.getMutationDivergence());
+                } else //all creatures of the first population are still moving
+                    child = new Creature(stream.split());
+            }
+            simulator.simulate(child, config.getTime(), config.getResolution());
+            insert(child);
+            evaluations.incrementAndGet();
+        }
+    }
+
+    /**
+     * @return a random creature among the best eliteSize creatures, null if the population is empty
+     */
+    private Creature pickParent(RandomNumberGenerator stream) {
+        final int candidates = Math.min(eliteSize, size.get());
+        if (candidates == 0) return null;
+        final int skip = stream.randInt(candidates - 1);
+        final Iterator<RankedCreature> it = population.iterator();
+        Creature parent = null;
+        for (int i = 0; i <= skip && it.hasNext(); i++)
+            parent = it.next().creature;
+        return parent;
+    }
+
+    private void insert(Creature creature) {
+        population.add(new RankedCreature(creature, arrivals.getAndIncrement()));
+        if (size.incrementAndGet() > populationSize && population.pollLast() != null)
+            size.decrementAndGet();
+    }
+
+    /**
+     * @return best creature so far, null if no creature has moved yet; must not be changed, it may be cloned as
+     * parent at the same time
+     */
+    public Creature getBest() {
+        final RankedCreature best = population.isEmpty() ? null : population.first();
+        return best == null ? null : best.creature;
+    }
+
+    /**
+     * @return the creatures currently in the population, the best one first; they must not be changed
+     */
+    public List<Creature> getRanking() {
+        List<Creature> ranking = new ArrayList<>(populationSize);
+        for (RankedCreature r : population)
+            ranking.add(r.creature);
+        return ranking;
+    }
+
+    public int size() {
+        return size.get();
+    }
+
+    /**
+     * @return number of creatures moved so far
+     */
+    public long getEvaluations() {
+        return evaluations.get();
+    }
+
+    /**
+     * @return creatures moved per second of wall clock time spent in run(long)
+     */
+    public double getEvaluationsPerSecond() {
+        final long nanos = busyNanos.get();
+        return nanos == 0 ? 0 : evaluations.get() * 1e9 / nanos;
+    }
+
+    public void shutdown() {
+        pool.shutdown();
+    }
+}
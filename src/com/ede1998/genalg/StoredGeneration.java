@@ -0,0 +1,238 @@
+package com.ede1998.genalg;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * A generation whose creatures live in a GenomeStore instead of in Creature objects, for populations of millions of
+ * creatures. The records are moved by the packed simulator in blocks of BLOCK_RECORDS, so the heap only ever holds one
+ * packed block per thread, and selection and mutation work on the records as well.
+ * Like Generation, generations are double buffered: a new generation overwrites the store of the generation before
+ * the previous one, so only the previous generation stays valid.
+ * A run gives exactly the generations of Generation(config, seed, evaluator) with an evaluator using the packed
+ * simulator and the same selection strategy, apart from immigrants and the fitness cache, which stored runs do not
+ * have. Every creature of every generation is moved.
+ */
+public class StoredGeneration {
+    /**
+     * Number of records moved together by one packed population.
+     */
+    static final int BLOCK_RECORDS = 4096;
+    private static final PackedSimulator SIMULATOR = new PackedSimulator();
+    private final EvolutionConfig config;
+    private final RandomNumberGenerator random;
+    private final ExecutorService executor;
+    private final SelectionStrategy selection;
+    private final int number;
+    private final GenomeStore store;
+    //store of the generation before this one, reused by the next generation
+    private GenomeStore spare;
+    //record of every rank, the best creature first, and its score
+    private int[] order;
+    private double[] scores;
+
+    /**
+     * Creates and moves the first generation of a run on the calling thread.
+     * @param config parameters of the run, shared by all following generations
+     * @param seed master seed of all random numbers of the run
+     */
+    public StoredGeneration(EvolutionConfig config, long seed) {
+        this(config, seed, null, Generation.defaultSelection(config));
+    }
+
+    /**
+     * Creates and moves the first generation of a run with the default selection of the configuration.
+     * @param config parameters of the run, shared by all following generations
+     * @param seed master seed of all random numbers of the run
+     * @param executor moves the blocks of records of this and all following generations; not shut down by the run
+     */
+    public StoredGeneration(EvolutionConfig config, long seed, ExecutorService executor) {
+        this(config, seed, nonNull(executor), Generation.defaultSelection(config));
+    }
+
+    /**
+     * Creates and moves the first generation of a run.
+     * @param config parameters of the run, shared by all following generations
+     * @param seed master seed of all random numbers of the run
+     * @param executor moves the blocks of records of this and all following generations, null for the calling thread;
+     *                 not shut down by the run
+     * @param selection decides which creatures survive into the next generation
+     */
+    public StoredGeneration(EvolutionConfig config, long seed, ExecutorService executor, SelectionStrategy selection) {
+        if (config == null) throw new IllegalArgumentException("Null pointer config.");
+        if (selection == null) throw new IllegalArgumentException("Null pointer selection.");
+        this.config = config;
+        this.random = new RandomNumberGenerator(seed);
+        this.executor = executor;
+        this.selection = selection;
+        this.number = 0;
+        store = new GenomeStore();
+        for (int i = 0; i < config.getPopulation(); i++)
+            store.add(new Creature(random.split()));
+        live();
+    }
+
+    /**
+     * Creates the next generation from the survivors of the previous one and their mutated offspring, and moves it.
+     * The generation before the previous one must no longer be used.
+     * @param previous the previous generation of the run
+     */
+    public StoredGeneration(StoredGeneration previous) {
+        if (previous == null) throw new IllegalArgumentException("Null pointer generation.");
+        if (previous == this) throw new IllegalArgumentException("Previous generation is the current gen.");
+        config = previous.config;
+        random = previous.random;
+        executor = previous.executor;
+        selection = previous.selection;
+        number = previous.number + 1;
+        final int population = previous.size();
+        if (previous.spare != null) {
+            store = previous.spare;
+            previous.spare = null;
+        } else {
+            store = new GenomeStore();
+            store.grow(population);
+        }
+        spare = previous.store;
+        final int survivors = config.getSurvivors();
+        naturalSelect(previous, survivors);
+        mutate(survivors, population - survivors);
+        live();
+    }
+
+    /**
+     * Copies the records of the surviving creatures, keeping their order, so the best survivor comes first.
+     */
+    private void naturalSelect(StoredGeneration previous, int survivors) {
+        final int[] alive = selection.select(previous.scores, survivors, random);
+        Arrays.sort(alive);
+        for (int i = 0; i < alive.length; i++)
+            store.set(i, previous.store, previous.order[alive[i]]);
+    }
+
+    /**
+     * Breeds a mutated child of a survivor into every record of a creature which died, the best survivors first, like
+     * Generation does.
+     */
+    private void mutate(int survivors, int offspring) {
+        final Creature scratch = new Creature();
+        for (int i = 0; i < offspring; i++) {
+            final int parent = i % survivors, child = survivors + i;
+            store.get(parent, scratch);
+            try {
+                scratch.mutate(random.split(), config.getRandomMutationProbability(), config.getMutationDivergence());
+                store.set(child, scratch);
+            } catch (CrippledCreatureException e) {
+                //a half removed node or muscle cannot walk, the child stays a copy of its parent instead
+                store.set(child, store, parent);
+            }
+        }
+    }
+
+    /**
+     * Moves all creatures from their start positions and ranks them, the best one first.
+     */
+    private void live() {
+        final int size = store.size(), time = config.getTime(), resolution = config.getResolution();
+        if (executor == null) {
+            for (int from = 0; from < size; from += BLOCK_RECORDS)
+                SIMULATOR.simulate(store, from, Math.min(size, from + BLOCK_RECORDS), time, resolution);
+        } else {
+            final List<Callable<Void>> blocks = new ArrayList<>((size + BLOCK_RECORDS - 1) / BLOCK_RECORDS);
+            for (int block = 0; block < size; block += BLOCK_RECORDS) {
+                final int from = block, to = Math.min(size, block + BLOCK_RECORDS);
+                blocks.add(() -> {
+                    SIMULATOR.simulate(store, from, to, time, resolution);
+                    return null;
+                });
+            }
+            try {
+                for (Future<Void> f : executor.invokeAll(blocks))
+                    f.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for creatures to move.", e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+        rank();
+    }
+
+    /**
+     * Sorts the records by score, the best first; records with the same score keep their order like in Generation's
+     * stable sort.
+     */
+    private void rank() {
+        final int size = store.size();
+        final double[] key = new double[size];
+        final GenomeStore.Record record = store.record(0);
+        for (int i = 0; i < size; i++)
+            key[i] = -score(record.moveTo(i).getFitness());
+        order = new int[size];
+        for (int i = 0; i < size; i++)
+            order[i] = i;
+        RankSelection.sortByKey(order, key);
+        scores = new double[size];
+        for (int i = 0; i < size; i++)
+            scores[i] = -key[order[i]];
+    }
+
+    /**
+     * Fitness used for ranking. Creatures whose fitness is not a number count as the worst ones.
+     */
+    private static double score(double fitness) {
+        return Double.isNaN(fitness) ? Double.NEGATIVE_INFINITY : fitness;
+    }
+
+    private static ExecutorService nonNull(ExecutorService executor) {
+        if (executor == null) throw new IllegalArgumentException("Null pointer executor.");
+        return executor;
+    }
+
+    /**
+     * @param rank rank of the creature, 0 is the best one
+     * @return fitness of the creature
+     */
+    public double getFitnessAt(int rank) {
+        return store.record(order[rank]).getFitness();
+    }
+
+    /**
+     * @param rank rank of the creature, 0 is the best one
+     * @return a new creature with the genome and fitness of the record, at its start position
+     */
+    public Creature getWalkerAt(int rank) {
+        final Creature walker = new Creature();
+        store.get(order[rank], walker);
+        return walker;
+    }
+
+    public int size() {
+        return store.size();
+    }
+
+    /**
+     * @return number of this generation in the run, the first generation is 0
+     */
+    public int getNumber() {
+        return number;
+    }
+
+    public EvolutionConfig getConfig() {
+        return config;
+    }
+
+    /**
+     * @return the store holding the creatures of this generation, in no particular order
+     */
+    public GenomeStore getStore() {
+        return store;
+    }
+}
@@ -0,0 +1,37 @@
+package com.ede1998.genalg;
+
+/**
+ * Every survivor is the winner of a tournament between a few random creatures which have not survived yet.
+ * Larger tournaments favour good creatures more strongly.
+ */
+public class TournamentSelection implements SelectionStrategy {
+    private final int size;
+
+    /**
+     * @param size number of creatures taking part in each tournament
+     */
+    public TournamentSelection(int size) {
+        if (size <= 0) throw new IllegalArgumentException("Tournament size must be greater than 0.");
+        this.size = size;
+    }
+
+    @Override
+    public int[] select(double[] scores, int survivors, RandomNumberGenerator random) {
+        final int[] remaining = new int[scores.length];
+        for (int i = 0; i < remaining.length; i++)
+            remaining[i] = i;
+        int count = remaining.length;
+        final int[] result = new int[survivors];
+        for (int s = 0; s < survivors; s++) {
+            int winner = random.randInt(count - 1);
+            for (int t = 1; t < size; t++) {
+                final int challenger = random.randInt(count - 1);
+                if (scores[remaining[challenger]] > scores[remaining[winner]])
+                    winner = challenger;
+            }
+            result[s] = remaining[winner];
+            remaining[winner] = remaining[--count];
+        }
+        return result;
+    }
+}
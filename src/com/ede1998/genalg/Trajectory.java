@@ -0,0 +1,155 @@
+package com.ede1998.genalg;
+
+/**
+ * Immutable recording of how the nodes of one creature moved, made by a TrajectoryRecorder. Node positions are
+ * sampled every few clock ticks and kept as differences to the previous sample in units of QUANTUM, so a whole walk
+ * of a creature fits into a few kilobytes. Contains the shape of the creature as well, so it can be drawn without the
+ * creature itself.
+ */
+public final class Trajectory {
+    /**
+     * Length in units which a position difference of 1 stands for.
+     */
+    public static final double QUANTUM = 1.0 / 1024;
+    private final int nodeCount;
+    private final double[] friction;
+    private final int[] firstNode;
+    private final int[] secondNode;
+    private final int[] startX;
+    private final int[] startY;
+    private final short[] deltas;
+    private final int sampleCount;
+    private final int ticksPerSample;
+    private final double fitness;
+
+    Trajectory(Creature creature, int[] startX, int[] startY, short[] deltas, int sampleCount, int ticksPerSample) {
+        nodeCount = creature.getNodeCount();
+        friction = new double[nodeCount];
+        for (int n = 0; n < nodeCount; n++)
+            friction[n] = creature.getNode(n).getFriction();
+        firstNode = new int[creature.getMuscleCount()];
+        secondNode = new int[creature.getMuscleCount()];
+        for (int m = 0; m < firstNode.length; m++) {
+            firstNode[m] = creature.getConnections().getFirstNode(m);
+            secondNode[m] = creature.getConnections().getSecondNode(m);
+        }
+        this.startX = startX;
+        this.startY = startY;
+        this.deltas = deltas;
+        this.sampleCount = sampleCount;
+        this.ticksPerSample = ticksPerSample;
+        this.fitness = creature.getFitness();
+    }
+
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    public int getMuscleCount() {
+        return firstNode.length;
+    }
+
+    public double getFriction(int node) {
+        return friction[node];
+    }
+
+    public int getFirstNode(int muscle) {
+        return firstNode[muscle];
+    }
+
+    public int getSecondNode(int muscle) {
+        return secondNode[muscle];
+    }
+
+    /**
+     * @return number of recorded samples, including the start positions
+     */
+    public int getSampleCount() {
+        return sampleCount;
+    }
+
+    /**
+     * @return number of clock ticks between two samples
+     */
+    public int getTicksPerSample() {
+        return ticksPerSample;
+    }
+
+    /**
+     * @return fitness of the recorded walk, measured without quantization
+     */
+    public double getFitness() {
+        return fitness;
+    }
+
+    /**
+     * @return bytes taken by the recorded positions
+     */
+    public int getRecordedBytes() {
+        return (startX.length + startY.length) * Integer.BYTES + deltas.length * Short.BYTES;
+    }
+
+    /**
+     * @return a new cursor at the first sample
+     */
+    public Replay replay() {
+        return new Replay();
+    }
+
+    /**
+     * Steps through the samples of a trajectory in order. Adds up the differences as it goes, so moving to the next
+     * sample is cheap but going back means rewinding. Not thread-safe; every thread needs a replay of its own.
+     */
+    public final class Replay {
+        private final int[] x = new int[nodeCount];
+        private final int[] y = new int[nodeCount];
+        private int sample;
+
+        private Replay() {
+            rewind();
+        }
+
+        /**
+         * Goes back to the start positions.
+         */
+        public void rewind() {
+            System.arraycopy(startX, 0, x, 0, nodeCount);
+            System.arraycopy(startY, 0, y, 0, nodeCount);
+            sample = 0;
+        }
+
+        /**
+         * Moves to the next sample.
+         * @return false if the last sample has been reached already
+         */
+        public boolean next() {
+            if (sample + 1 >= sampleCount) return false;
+            int offset = sample * nodeCount * 2;
+            for (int n = 0; n < nodeCount; n++) {
+                x[n] += deltas[offset++];
+                y[n] += deltas[offset++];
+            }
+            sample++;
+            return true;
+        }
+
+        /**
+         * @return index of the current sample, 0 being the start positions
+         */
+        public int getSample() {
+            return sample;
+        }
+
+        public double getX(int node) {
+            return x[node] * QUANTUM;
+        }
+
+        public double getY(int node) {
+            return y[node] * QUANTUM;
+        }
+
+        public Trajectory getTrajectory() {
+            return Trajectory.this;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.ede1998.genalg;
+
+import java.util.Arrays;
+
+/**
+ * Records how the nodes of a creature move while it walks, see Trajectory. The recorder moves a copy of the creature
+ * and is called by it after every clock tick; creatures without a recorder only pay for one null check per tick.
+ * Memory is bounded: the buffer holds at most maxSamples differences per node, all allocated up front. When it is full,
+ * every second sample is dropped and the recorder goes on with twice the stride, so a recording always covers the
+ * whole walk, only more coarsely the longer it is.
+ * Not thread-safe; a recorder can be reused for any number of recordings.
+ */
+public final class TrajectoryRecorder {
+    private final int stride;
+    private final int capacity;
+    private final Creature creature = new Creature();
+    private final short[] deltas;
+    private final int[] startX = new int[Creature.MAX_NODES];
+    private final int[] startY = new int[Creature.MAX_NODES];
+    private final int[] lastX = new int[Creature.MAX_NODES];
+    private final int[] lastY = new int[Creature.MAX_NODES];
+    private final int[] carry = new int[2 * Creature.MAX_NODES];
+    private int nodeCount;
+    private int ticksPerSample;
+    private int ticks;
+    private int blocks;
+
+    /**
+     * @param stride number of clock ticks between two samples, until the buffer fills up
+     * @param maxSamples maximum number of samples kept per recording, apart from the start positions
+     */
+    public TrajectoryRecorder(int stride, int maxSamples) {
+        if (stride <= 0) throw new IllegalArgumentException("Stride must be greater than 0.");
+        if (maxSamples < 2) throw new IllegalArgumentException("Recorder must keep at least two samples.");
+        this.stride = stride;
+        //even, so that halving keeps the newest sample
+        capacity = maxSamples & ~1;
+        deltas = new short[capacity * 2 * Creature.MAX_NODES];
+    }
+
+    /**
+     * Moves a copy of the creature from its start positions like Creature.move(int, int) and records its nodes.
+     * @param original creature to record, is not changed
+     * @param time number of repetitions of creature movement
+     * @param resolution number of clock ticks per repetition
+     */
+    public Trajectory record(Creature original, int time, int resolution) {
+        if (original == null) throw new IllegalArgumentException("Null pointer creature.");
+        creature.copyFrom(original);
+        nodeCount = creature.getNodeCount();
+        ticksPerSample = stride;
+        ticks = blocks = 0;
+        Arrays.fill(carry, 0);
+        for (int n = 0; n < nodeCount; n++) {
+            startX[n] = lastX[n] = quantize(creature.getNode(n).getPositionX());
+            startY[n] = lastY[n] = quantize(creature.getNode(n).getPositionY());
+        }
+        creature.setRecorder(this);
+        try {
+            creature.move(time, resolution);
+        } finally {
+            creature.setRecorder(null);
+        }
+        return new Trajectory(creature, Arrays.copyOf(startX, nodeCount), Arrays.copyOf(startY, nodeCount),
+                Arrays.copyOf(deltas, blocks * 2 * nodeCount), blocks + 1, ticksPerSample);
+    }
+
+    /**
+     * Called by the creature after every clock tick.
+     */
+    void tick(Node[] nodes) {
+        if (++ticks < ticksPerSample) return;
+        ticks = 0;
+        int offset = blocks * 2 * nodeCount;
+        for (int n = 0; n < nodeCount; n++) {
+            deltas[offset++] = step(lastX, n, nodes[n].getPositionX());
+            deltas[offset++] = step(lastY, n, nodes[n].getPositionY());
+        }
+        if (++blocks == capacity)
+            halve();
+    }
+
+    /**
+     * Merges every two differences into one. What does not fit into a short is carried over to the next one.
+     */
+    private void halve() {
+        final int width = 2 * nodeCount;
+        for (int block = 0; block < capacity / 2; block++) {
+            final int first = 2 * block * width, second = first + width, target = block * width;
+            for (int i = 0; i < width; i++) {
+                final int sum = deltas[first + i] + deltas[second + i] + carry[i];
+                final int clamped = clamp(sum);
+                carry[i] = sum - clamped;
+                deltas[target + i] = (short) clamped;
+            }
+        }
+        //differences which are still carried are not stored, so the last position has to take them back
+        for (int n = 0; n < nodeCount; n++) {
+            lastX[n] -= carry[2 * n];
+            lastY[n] -= carry[2 * n + 1];
+            carry[2 * n] = carry[2 * n + 1] = 0;
+        }
+        blocks = capacity / 2;
+        ticksPerSample *= 2;
+    }
+
+    private static short step(int[] last, int n, double position) {
+        final int delta = clamp((long) quantize(position) - last[n]);
+        last[n] += delta;
+        return (short) delta;
+    }
+
+    private static int quantize(double position) {
+        return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, Math.round(position / Trajectory.QUANTUM)));
+    }
+
+    private static int clamp(long delta) {
+        return (int) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, delta));
+    }
+}
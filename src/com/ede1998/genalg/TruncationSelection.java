@@ -0,0 +1,62 @@
+package com.ede1998.genalg;
+
+/**
+ * The best creatures survive. Before that, every creature dies with a small probability regardless of its score, as
+ * long as not more creatures die than have to.
+ * The survivors are found by partial selection (quickselect), which takes linear time on average.
+ */
+public class TruncationSelection implements SelectionStrategy {
+    private final double randomDeathProbability;
+
+    /**
+     * @param randomDeathProbability probability of every creature to die regardless of its score
+     */
+    public TruncationSelection(double randomDeathProbability) {
+        if (randomDeathProbability < 0 || randomDeathProbability > 1)
+            throw new IllegalArgumentException("Random death probability must be between 0 and 1.");
+        this.randomDeathProbability = randomDeathProbability;
+    }
+
+    @Override
+    public int[] select(double[] scores, int survivors, RandomNumberGenerator random) {
+        final int deaths = scores.length - survivors;
+        final int[] candidates = new int[scores.length];
+        int count = 0;
+        for (int i = 0; i < scores.length; i++) {
+            if (i - count < deaths && random.randBool(randomDeathProbability))
+                continue;
+            candidates[count++] = i;
+        }
+        selectTop(candidates, count, scores, survivors);
+        final int[] result = new int[survivors];
+        System.arraycopy(candidates, 0, result, 0, survivors);
+        return result;
+    }
+
+    /**
+     * Rearranges the first length indices so that the k indices with the highest keys come first, in no particular
+     * order (quickselect with median of three pivots).
+     */
+    static void selectTop(int[] index, int length, double[] key, int k) {
+        int left = 0, right = length - 1;
+        while (left < right) {
+            final int mid = (left + right) >>> 1;
+            final double a = key[index[left]], b = key[index[mid]], c = key[index[right]];
+            final double pivot = Math.max(Math.min(a, b), Math.min(Math.max(a, b), c));
+            int i = left, j = right;
+            while (i <= j) {
+                while (key[index[i]] > pivot) i++;
+                while (key[index[j]] < pivot) j--;
+                if (i <= j) {
+                    final int tmp = index[i];
+                    index[i++] = index[j];
+                    index[j--] = tmp;
+                }
+            }
+            //now [left, j] >= pivot >= [i, right]
+            if (k - 1 <= j) right = j;
+            else if (k - 1 >= i) left = i;
+            else return;
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.ede1998.genalg;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.ede1998.genalg.GenerationTest.summary;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * A run resumed from a checkpoint has to produce exactly the generations of the uninterrupted run.
+ */
+class CheckpointTest {
+    private static final long SEED = 20170314;
+    private static final int GENERATIONS = 8;
+    private static final int CHECKPOINT = 3;
+    private static final EvolutionConfig SMALL = EvolutionConfig.DEFAULT.withPopulation(20).withTime(3)
+            .withResolution(2000);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void resumedRunMatchesUninterruptedRun() throws IOException {
+        assertResumeMatches(SMALL);
+    }
+
+    @Test
+    void resumedRunKeepsItsConfiguration() throws IOException {
+        assertResumeMatches(SMALL.withDeathPercentage(0.4).withRandomDeathProbability(0.1)
+                .withRandomMutationProbability(0.2).withMutationDivergence(0.3).withTime(2).withResolution(1500));
+    }
+
+    @Test
+    void roundTripKeepsGeneration() throws IOException {
+        final Generation original = run(SMALL, CHECKPOINT);
+        final Path file = directory.resolve("run.ckpt");
+        Checkpoint.write(original, file);
+        final Generation restored = Checkpoint.read(file, new SequentialEvaluator());
+        assertEquals(original.getNumber(), restored.getNumber());
+        assertEquals(original.getConfig().toString(), restored.getConfig().toString());
+        assertEquals(summary(original), summary(restored));
+        for (int i = 0; i < original.size(); i++)
+            assertEquals(original.getWalkerAt(i).isFitnessEstimated(), restored.getWalkerAt(i).isFitnessEstimated());
+    }
+
+    @Test
+    void otherVersionIsRejected() throws IOException {
+        final Path file = directory.resolve("old.ckpt");
+        final ByteBuffer checkpoint = Checkpoint.encode(run(SMALL, 0));
+        checkpoint.putInt(Integer.BYTES, Checkpoint.VERSION - 1);
+        Checkpoint.write(checkpoint, file);
+        assertThrows(IOException.class, () -> Checkpoint.read(file, new SequentialEvaluator()));
+    }
+
+    @Test
+    void truncatedCheckpointIsRejected() throws IOException {
+        final Path file = directory.resolve("truncated.ckpt");
+        Checkpoint.write(run(SMALL, 0), file);
+        final byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 1));
+        assertThrows(IOException.class, () -> Checkpoint.read(file, new SequentialEvaluator()));
+    }
+
+    @Test
+    void writerOnlyWritesEveryIntervalGenerations() throws IOException {
+        final Path file = directory.resolve("writer.ckpt");
+        final CheckpointWriter none = new CheckpointWriter(file, CHECKPOINT);
+        Generation generation = run(SMALL, 1);
+        for (int g = 1; g < CHECKPOINT; g++, generation = new Generation(generation))
+            none.offer(generation);
+        none.close();
+        assertEquals(0, none.getWritten() + none.getSkipped());
+        assertFalse(Files.exists(file));
+
+        final CheckpointWriter every = new CheckpointWriter(file, CHECKPOINT);
+        generation = run(SMALL, 0);
+        for (int g = 0; g < GENERATIONS; g++, generation = new Generation(generation))
+            every.offer(generation);
+        every.close();
+        //generations 0, 3 and 6, of which some may have been replaced by the next one before they were written
+        assertEquals(3, every.getWritten() + every.getSkipped());
+        assertEquals(6, Checkpoint.read(file, new SequentialEvaluator()).getNumber());
+    }
+
+    @Test
+    void writtenCheckpointResumesToSameGenerations() throws IOException {
+        final Path file = directory.resolve("written.ckpt");
+        final CheckpointWriter writer = new CheckpointWriter(file, CHECKPOINT);
+        Generation generation = run(SMALL, 0);
+        for (int g = 0; g < GENERATIONS; g++, generation = new Generation(generation))
+            writer.offer(generation);
+        writer.close();
+        assertResumeMatches(SMALL, file, 6);
+    }
+
+    /**
+     * Evolution offers every generation it creates to its checkpoint writer and closes the writer when it stops.
+     */
+    @Test
+    void evolutionWritesCheckpoints() throws IOException, InterruptedException {
+        final Path file = directory.resolve("evolution.ckpt");
+        final Evolution evolution = new Evolution(run(SMALL, 0));
+        evolution.setCheckpoints(new CheckpointWriter(file, CHECKPOINT));
+        evolution.start();
+        while (evolution.getSnapshots().getPublished() < GENERATIONS - 1)
+            Thread.sleep(1);
+        evolution.stop();
+        evolution.join();
+        final int number = Checkpoint.read(file, new SequentialEvaluator()).getNumber();
+        assertEquals(0, number % CHECKPOINT);
+        assertTrue(number >= CHECKPOINT, "generation " + number);
+        assertResumeMatches(SMALL, file, number);
+    }
+
+    private void assertResumeMatches(EvolutionConfig config) throws IOException {
+        final Path file = directory.resolve("resume.ckpt");
+        Checkpoint.write(run(config, CHECKPOINT), file);
+        assertResumeMatches(config, file, CHECKPOINT);
+    }
+
+    /**
+     * Resumes from the checkpoint, which has to hold the generation with the given number, and compares the following
+     * generations with an uninterrupted run.
+     */
+    private static void assertResumeMatches(EvolutionConfig config, Path file, int number) throws IOException {
+        final int generations = Math.max(GENERATIONS, number + 3);
+        final List<List<Object>> uninterrupted = new ArrayList<>();
+        Generation generation = new Generation(config, SEED, new SequentialEvaluator());
+        for (int g = 0; g < generations; g++) {
+            if (g > 0) generation = new Generation(generation);
+            uninterrupted.add(summary(generation));
+        }
+
+        Generation resumed = Checkpoint.read(file, new SequentialEvaluator());
+        assertEquals(number, resumed.getNumber());
+        assertEquals(config.toString(), resumed.getConfig().toString());
+        assertEquals(uninterrupted.get(number), summary(resumed));
+        for (int g = number + 1; g < generations; g++) {
+            resumed = new Generation(resumed);
+            assertEquals(uninterrupted.get(g), summary(resumed), "generation " + g);
+        }
+    }
+
+    /**
+     * @return the generation with the given number of a run with the configuration
+     */
+    private static Generation run(EvolutionConfig config, int number) {
+        Generation generation = new Generation(config, SEED, new SequentialEvaluator());
+        for (int g = 0; g < number; g++)
+            generation = new Generation(generation);
+        return generation;
+    }
+}
@@ -0,0 +1,45 @@
+package com.ede1998.genalg;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Runs of an ExperimentRunner have to give the same generations as a run on its own, and count every creature they
+ * moved.
+ */
+class ExperimentRunnerTest {
+    private static final long SEED = 20170314;
+    private static final int GENERATIONS = 6;
+    private static final EvolutionConfig SMALL = EvolutionConfig.DEFAULT.withPopulation(20).withTime(3)
+            .withResolution(2000);
+
+    @Test
+    void resultCountsCreaturesMovedInAllGenerations() throws InterruptedException {
+        final List<EvolutionConfig> configs = Arrays.asList(SMALL, SMALL.withMutationDivergence(0.4));
+        final ExperimentRunner runner = new ExperimentRunner(3);
+        final List<ExperimentResult> results;
+        try {
+            results = runner.runAll(configs, SEED, GENERATIONS);
+        } finally {
+            runner.shutdown();
+        }
+        for (int c = 0; c < configs.size(); c++) {
+            final long[] moved = new long[1];
+            final Evaluator sequential = new SequentialEvaluator();
+            final Evaluator counting = (walkers, time, resolution) -> {
+                moved[0] += walkers.size();
+                sequential.evaluate(walkers, time, resolution);
+            };
+            Generation generation = new Generation(configs.get(c), SEED, counting);
+            for (int g = 1; g < GENERATIONS; g++)
+                generation = new Generation(generation);
+            final ExperimentResult result = results.get(c);
+            assertEquals(generation.getWalkerAt(0).getFitness(), result.getBestFitness(), "config " + c);
+            assertEquals(moved[0], result.getEvaluations(), "config " + c);
+        }
+    }
+}
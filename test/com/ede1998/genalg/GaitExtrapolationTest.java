@@ -0,0 +1,55 @@
+package com.ede1998.genalg;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static com.ede1998.genalg.SimulatorEquivalenceTest.creatures;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Extrapolating a periodic gait has to give the fitness of the full simulation, and creatures whose gait never repeats
+ * have to be simulated for the whole time span.
+ */
+class GaitExtrapolationTest {
+    private static final int TIME = 15;
+    private static final int RESOLUTION = 2000;
+    /**
+     * Maximum relative difference between extrapolated and simulated fitness.
+     */
+    private static final double BOUND = 1e-9;
+
+    @Test
+    void periodicGaitIsExtrapolatedWithinBound() {
+        final List<Creature> simulated = creatures(), extrapolated = creatures();
+        new SequentialEvaluator(new ObjectSimulator()).evaluate(simulated, TIME, RESOLUTION);
+        final ObjectSimulator simulator = new ObjectSimulator(Creature.GAIT_TOLERANCE);
+        new SequentialEvaluator(simulator).evaluate(extrapolated, TIME, RESOLUTION);
+        assertTrue(simulator.getExtrapolatedFraction() > 0);
+        for (int c = 0; c < simulated.size(); c++) {
+            final double expected = simulated.get(c).getFitness();
+            assertEquals(expected, extrapolated.get(c).getFitness(), BOUND * Math.max(1, Math.abs(expected)),
+                    "creature " + c);
+        }
+    }
+
+    @Test
+    void gaitWhichNeverRepeatsIsFullySimulated() {
+        final List<Creature> simulated = creatures(), extrapolated = creatures();
+        int periodic = 0, aperiodic = 0;
+        for (int c = 0; c < simulated.size(); c++) {
+            simulated.get(c).move(TIME, RESOLUTION);
+            final int cycles = extrapolated.get(c).move(TIME, RESOLUTION, Creature.GAIT_TOLERANCE);
+            if (cycles < TIME) {
+                periodic++;
+                continue;
+            }
+            aperiodic++;
+            assertEquals(TIME, cycles);
+            assertEquals(simulated.get(c).getFitness(), extrapolated.get(c).getFitness(), "creature " + c);
+        }
+        assertTrue(periodic > 0);
+        assertTrue(aperiodic > 0);
+    }
+}
@@ -0,0 +1,118 @@
+package com.ede1998.genalg;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Generations with the same seed have to be the same, however the creatures are stored and moved.
+ */
+class GenerationTest {
+    private static final long SEED = 20170314;
+    private static final int GENERATIONS = 8;
+    private static final EvolutionConfig SMALL = EvolutionConfig.DEFAULT.withPopulation(20).withTime(3)
+            .withResolution(2000);
+
+    @TempDir
+    Path directory;
+
+    /**
+     * Every generation of the second run is built from fresh creatures, read from a checkpoint of the generation
+     * before, instead of from the recycled creatures of the generation before the previous one.
+     */
+    @Test
+    void recycledCreaturesMatchFreshCreatures() throws IOException {
+        final List<List<Object>> recycled = run(SMALL, new SequentialEvaluator());
+        final Path file = directory.resolve("fresh.ckpt");
+        Generation generation = new Generation(SMALL, SEED, new SequentialEvaluator());
+        for (int g = 1; g < GENERATIONS; g++) {
+            Checkpoint.write(generation, file);
+            generation = new Generation(Checkpoint.read(file, new SequentialEvaluator()));
+            assertEquals(recycled.get(g), summary(generation), "generation " + g);
+        }
+    }
+
+    @Test
+    void previousGenerationStaysValid() {
+        Generation previous = new Generation(SMALL, SEED, new SequentialEvaluator());
+        for (int g = 1; g < GENERATIONS; g++) {
+            final List<Object> before = summary(previous);
+            final Generation next = new Generation(previous);
+            assertEquals(before, summary(previous), "generation " + (g - 1));
+            previous = next;
+        }
+    }
+
+    @Test
+    void parallelEvaluatorsMatchSequentialEvaluator() {
+        final List<List<Object>> sequential = run(SMALL, new SequentialEvaluator());
+        for (String name : new String[]{"forkjoin", "pool"}) {
+            final Evaluator evaluator = Evaluator.forName(name, 3);
+            try {
+                assertEquals(sequential, run(SMALL, evaluator), name);
+            } finally {
+                evaluator.shutdown();
+            }
+        }
+    }
+
+    @Test
+    void defaultConfigMatchesFormerConstants() {
+        final EvolutionConfig config = EvolutionConfig.DEFAULT;
+        assertEquals(100, config.getPopulation());
+        assertEquals(0.2, config.getDeathPercentage());
+        assertEquals(0.02, config.getRandomDeathProbability());
+        assertEquals(15, config.getTime());
+        assertEquals(15000, config.getResolution());
+        assertEquals(0.03, config.getRandomMutationProbability());
+        assertEquals(0.2, config.getMutationDivergence());
+        assertEquals(80, config.getSurvivors());
+    }
+
+    /**
+     * Generation(int, long, Evaluator) predates EvolutionConfig and has to keep giving the same run.
+     */
+    @Test
+    void populationConstructorMatchesDefaultConfig() {
+        final int population = 10;
+        Generation withoutConfig = new Generation(population, SEED, new SequentialEvaluator());
+        Generation withConfig = new Generation(EvolutionConfig.DEFAULT.withPopulation(population), SEED,
+                new SequentialEvaluator());
+        for (int g = 0; g < 3; g++) {
+            if (g > 0) {
+                withoutConfig = new Generation(withoutConfig);
+                withConfig = new Generation(withConfig);
+            }
+            assertEquals(summary(withoutConfig), summary(withConfig), "generation " + g);
+        }
+    }
+
+    private static List<List<Object>> run(EvolutionConfig config, Evaluator evaluator) {
+        final List<List<Object>> summaries = new ArrayList<>();
+        Generation generation = new Generation(config, SEED, evaluator);
+        summaries.add(summary(generation));
+        for (int g = 1; g < GENERATIONS; g++) {
+            generation = new Generation(generation);
+            summaries.add(summary(generation));
+        }
+        return summaries;
+    }
+
+    /**
+     * @return fingerprint and fitness of every creature, best first
+     */
+    static List<Object> summary(Generation generation) {
+        final List<Object> summary = new ArrayList<>();
+        for (int i = 0; i < generation.size(); i++) {
+            summary.add(generation.getWalkerAt(i).fingerprint());
+            summary.add(generation.getWalkerAt(i).getFitness());
+        }
+        return summary;
+    }
+}
@@ -0,0 +1,98 @@
+package com.ede1998.genalg;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Migration counts of both topologies and the hall of fame. Which migrants arrive when depends on the timing of the
+ * island threads, so only what every timing gives the same is checked.
+ */
+class IslandModelTest {
+    private static final long SEED = 20170314;
+    private static final EvolutionConfig SMALL = EvolutionConfig.DEFAULT.withPopulation(12).withTime(2)
+            .withResolution(1000);
+    private static final int ISLANDS = 3;
+    private static final int GENERATIONS = 5;
+    private static final int INTERVAL = 2;
+    private static final int MIGRANTS = 2;
+
+    @Test
+    void ringSendsToOneIsland() {
+        //generations 2 and 4 migrate
+        assertMigration(MigrationTopology.RING, 2 * MIGRANTS);
+    }
+
+    @Test
+    void fullSendsToAllOtherIslands() {
+        assertMigration(MigrationTopology.FULL, 2 * (ISLANDS - 1) * MIGRANTS);
+    }
+
+    /**
+     * The survivors of every generation are offered again with the next one, and migrants are copies of creatures of
+     * other islands, so the hall of fame is offered many creatures with the same fingerprint.
+     */
+    @Test
+    void hallOfFameHoldsEveryGenomeOnce() {
+        final IslandModel model = new IslandModel(ISLANDS, SMALL, SEED, new ObjectSimulator(), MigrationTopology.FULL,
+                1, SMALL.getSurvivors());
+        try {
+            model.run(GENERATIONS);
+        } finally {
+            model.shutdown();
+        }
+        final List<Creature> famous = model.getHallOfFame();
+        assertEquals(IslandModel.HALL_OF_FAME_SIZE, famous.size());
+        final Set<Long> fingerprints = new HashSet<>();
+        for (int i = 0; i < famous.size(); i++) {
+            assertTrue(fingerprints.add(famous.get(i).fingerprint()), "creature " + i);
+            if (i > 0) assertTrue(famous.get(i - 1).getFitness() >= famous.get(i).getFitness());
+        }
+        double best = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < ISLANDS; i++)
+            best = Math.max(best, model.getStats(i).getBestFitness());
+        assertEquals(best, famous.get(0).getFitness());
+    }
+
+    /**
+     * The islands have to move their creatures for the time and resolution of the configuration.
+     */
+    @Test
+    void islandsUseTheConfiguration() {
+        final IslandModel model = new IslandModel(1, SMALL, SEED, new ObjectSimulator(), MigrationTopology.RING,
+                INTERVAL, MIGRANTS);
+        try {
+            model.run(1);
+        } finally {
+            model.shutdown();
+        }
+        final Generation expected = new Generation(SMALL, new RandomNumberGenerator(SEED).nextLong(),
+                new SequentialEvaluator());
+        assertEquals(expected.getWalkerAt(0).getFitness(), model.getStats(0).getBestFitness());
+        assertEquals(expected.getWalkerAt(0).fingerprint(), model.getHallOfFame().get(0).fingerprint());
+    }
+
+    private static void assertMigration(MigrationTopology topology, long emigrantsPerIsland) {
+        final IslandModel model = new IslandModel(ISLANDS, SMALL, SEED, new ObjectSimulator(), topology, INTERVAL,
+                MIGRANTS);
+        try {
+            model.run(GENERATIONS);
+        } finally {
+            model.shutdown();
+        }
+        long emigrants = 0, immigrants = 0;
+        for (int i = 0; i < ISLANDS; i++) {
+            final IslandStats stats = model.getStats(i);
+            assertEquals(GENERATIONS, stats.getGenerations());
+            assertEquals(emigrantsPerIsland, stats.getEmigrants(), "island " + i);
+            emigrants += stats.getEmigrants();
+            immigrants += stats.getImmigrants();
+        }
+        assertTrue(immigrants <= emigrants);
+    }
+}
@@ -0,0 +1,49 @@
+package com.ede1998.genalg;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * The compiled schedule has to give the same lengths as computing the length quotient of the muscle directly, the way
+ * Muscle.tenseOrRelease did before schedules were compiled.
+ */
+class MuscleScheduleTest {
+    private static final int MUSCLES = 1000;
+    private static final int STEPS = 1000;
+
+    @Test
+    void scheduleMatchesLengthQuotient() {
+        final RandomNumberGenerator random = new RandomNumberGenerator(20170314);
+        final Muscle muscle = new Muscle();
+        for (int m = 0; m < MUSCLES; m++) {
+            muscle.randomize(random.random(0.1, 10), random);
+            final MuscleSchedule schedule = muscle.getSchedule();
+            for (int i = 0; i <= STEPS; i++)
+                assertLength(muscle, schedule, (double) i / STEPS);
+            assertLength(muscle, schedule, muscle.getTimeContractionStart());
+            assertLength(muscle, schedule, muscle.getTimeExtensionStart());
+        }
+    }
+
+    private static void assertLength(Muscle muscle, MuscleSchedule schedule, double timeQuotient) {
+        final double expected = muscle.getContractedLength()
+                + lengthQuotient(muscle.getTimeContractionStart(), muscle.getTimeExtensionStart(), timeQuotient)
+                * (muscle.getExtendedLength() - muscle.getContractedLength());
+        assertEquals(expected, schedule.lengthAt(timeQuotient),
+                PackedSimulator.TOLERANCE * Math.max(1, Math.abs(expected)), () -> "time quotient " + timeQuotient);
+    }
+
+    /**
+     * Length quotient (0 contracted, 1 extended) as Muscle computed it before its schedule was compiled.
+     */
+    private static double lengthQuotient(double c, double e, double t) {
+        if (t == c) return 1;
+        if (t == e) return 0;
+        if (t < e && t < c)
+            return e < c ? (1 - c + t) / (1 - (c - e)) : (1 - e + t) / (1 - (e - c));
+        if (t > e && t > c)
+            return e < c ? (t - c) / (1 - (c - e)) : (t - e) / (1 - (e - c));
+        return e < c ? (t - e) / (c - e) : 1 - (t - c) / (e - c);
+    }
+}
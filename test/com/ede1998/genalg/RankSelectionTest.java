@@ -0,0 +1,56 @@
+package com.ede1998.genalg;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The weight of a creature is its rank, so it must not depend on where creatures with the same score happen to end up
+ * in the sort.
+ */
+class RankSelectionTest {
+
+    @Test
+    void distinctScoresAreWeightedByRank() {
+        assertArrayEquals(new double[]{2, 4, 1, 3}, RankSelection.weights(new double[]{0.5, 7, -1, 2}));
+    }
+
+    @Test
+    void tiedScoresShareTheirAverageRank() {
+        assertArrayEquals(new double[]{4, 1.5, 1.5, 4, 4, 6}, RankSelection.weights(new double[]{3, 1, 1, 3, 3, 7}));
+        assertArrayEquals(new double[]{3, 3, 3, 3, 3}, RankSelection.weights(new double[5]));
+    }
+
+    @Test
+    void indicesAreSortedByKey() {
+        final RandomNumberGenerator random = new RandomNumberGenerator(20170314);
+        for (int length = 0; length < 70; length++) {
+            final double[] key = new double[length];
+            for (int i = 0; i < length; i++)
+                key[i] = random.randInt(0, 9);
+            final int[] index = new int[length];
+            for (int i = 0; i < length; i++)
+                index[i] = i;
+            RankSelection.sortByKey(index, key);
+            final double[] sorted = key.clone();
+            Arrays.sort(sorted);
+            for (int i = 0; i < length; i++) {
+                assertEquals(sorted[i], key[index[i]]);
+                //equal keys keep their order
+                if (i > 0 && key[index[i]] == key[index[i - 1]]) assertTrue(index[i] > index[i - 1]);
+            }
+        }
+    }
+
+    @Test
+    void selectsDistinctSurvivors() {
+        final double[] scores = {3, 1, 1, 3, 3, 7, 0, 2};
+        final int[] survivors = new RankSelection().select(scores, 5, new RandomNumberGenerator(20170314));
+        assertEquals(5, survivors.length);
+        assertEquals(5, Arrays.stream(survivors).distinct().count());
+    }
+}
@@ -0,0 +1,102 @@
+package com.ede1998.genalg;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Starts real EvaluationWorker processes on localhost and compares their fitness with local evaluation.
+ */
+class RemoteEvaluatorTest {
+    private static final long SEED = 20170314;
+    private static final int POPULATION = 64;
+    private static final int TIME = Generation.TIME;
+    private static final int RESOLUTION = Creature.RESOLUTION;
+
+    private RemoteEvaluator remote;
+
+    @BeforeEach
+    void startWorkers() throws IOException {
+        remote = new RemoteEvaluator(2, "object", 1, RemoteEvaluator.DEFAULT_BATCHES_IN_FLIGHT,
+                RemoteEvaluator.DEFAULT_RESULT_TIMEOUT_MILLIS);
+    }
+
+    @AfterEach
+    void stopWorkers() {
+        remote.shutdown();
+    }
+
+    @Test
+    void fitnessEqualsLocalEvaluation() {
+        final List<Creature> walkers = creatures();
+        remote.evaluate(walkers, TIME, RESOLUTION);
+        assertEquals(localFitness(), fitness(walkers));
+        assertEquals(2, remote.getLiveWorkers());
+    }
+
+    @Test
+    void batchesOfKilledWorkerAreSentAgain() throws InterruptedException {
+        final Process victim = remote.getProcesses().get(0);
+        final Thread killer = new Thread(() -> {
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                return;
+            }
+            victim.destroyForcibly();
+        });
+        killer.start();
+        final List<Creature> walkers = creatures();
+        remote.evaluate(walkers, TIME, RESOLUTION);
+        killer.join();
+        final List<Double> expected = localFitness();
+        assertEquals(expected, fitness(walkers));
+
+        //if the worker only died after the evaluation above, this one notices it
+        final List<Creature> again = creatures();
+        remote.evaluate(again, TIME, RESOLUTION);
+        assertEquals(expected, fitness(again));
+        assertEquals(1, remote.getLiveWorkers());
+    }
+
+    @Test
+    void workerWhichDoesNotAnswerInTimeIsDead() throws IOException {
+        final RemoteEvaluator impatient = new RemoteEvaluator(1, "object", POPULATION, 1, 1);
+        try {
+            final IllegalStateException e = assertThrows(IllegalStateException.class,
+                    () -> impatient.evaluate(creatures(), TIME, RESOLUTION));
+            assertEquals("All workers have died.", e.getMessage());
+            assertEquals(0, impatient.getLiveWorkers());
+        } finally {
+            impatient.shutdown();
+        }
+    }
+
+    private static List<Creature> creatures() {
+        final RandomNumberGenerator random = new RandomNumberGenerator(SEED);
+        final List<Creature> walkers = new ArrayList<>(POPULATION);
+        for (int i = 0; i < POPULATION; i++)
+            walkers.add(new Creature(random.split()));
+        return walkers;
+    }
+
+    private static List<Double> localFitness() {
+        final List<Creature> walkers = creatures();
+        new SequentialEvaluator(new ObjectSimulator()).evaluate(walkers, TIME, RESOLUTION);
+        return fitness(walkers);
+    }
+
+    private static List<Double> fitness(List<Creature> walkers) {
+        final List<Double> fitness = new ArrayList<>(walkers.size());
+        for (Creature walker : walkers)
+            fitness.add(walker.getFitness());
+        return fitness;
+    }
+}
@@ -0,0 +1,73 @@
+package com.ede1998.genalg;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The packed simulator and the evaluators built on it have to move creatures exactly like (or, for the packed
+ * simulator, within PackedSimulator.TOLERANCE of) Creature.move.
+ */
+class SimulatorEquivalenceTest {
+    private static final long SEED = 20170314;
+    private static final int POPULATION = 40;
+    private static final int TIME = 3;
+    private static final int RESOLUTION = 2000;
+
+    @Test
+    void packedSimulatorMatchesObjectSimulator() {
+        final List<Creature> objects = creatures(), packed = creatures();
+        new SequentialEvaluator(new ObjectSimulator()).evaluate(objects, TIME, RESOLUTION);
+        new SequentialEvaluator(new PackedSimulator()).evaluate(packed, TIME, RESOLUTION);
+        for (int c = 0; c < POPULATION; c++) {
+            final Creature expected = objects.get(c), actual = packed.get(c);
+            assertClose(expected.getFitness(), actual.getFitness());
+            for (int n = 0; n < expected.getNodeCount(); n++) {
+                assertClose(expected.getNode(n).getPositionX(), actual.getNode(n).getPositionX());
+                assertClose(expected.getNode(n).getPositionY(), actual.getNode(n).getPositionY());
+            }
+        }
+    }
+
+    @Test
+    void batchEvaluatorMatchesPackedSimulatorExactly() {
+        final List<Creature> single = creatures(), batch = creatures();
+        new SequentialEvaluator(new PackedSimulator()).evaluate(single, TIME, RESOLUTION);
+        final BatchEvaluator evaluator = new BatchEvaluator(3);
+        try {
+            evaluator.evaluate(batch, TIME, RESOLUTION);
+        } finally {
+            evaluator.shutdown();
+        }
+        assertEquals(positions(single), positions(batch));
+    }
+
+    static List<Creature> creatures() {
+        final RandomNumberGenerator random = new RandomNumberGenerator(SEED);
+        final List<Creature> walkers = new ArrayList<>(POPULATION);
+        for (int i = 0; i < POPULATION; i++)
+            walkers.add(new Creature(random.split()));
+        return walkers;
+    }
+
+    private static List<Double> positions(List<Creature> walkers) {
+        final List<Double> positions = new ArrayList<>();
+        for (Creature walker : walkers) {
+            positions.add(walker.getFitness());
+            for (int n = 0; n < walker.getNodeCount(); n++) {
+                positions.add(walker.getNode(n).getPositionX());
+                positions.add(walker.getNode(n).getPositionY());
+            }
+        }
+        return positions;
+    }
+
+    private static void assertClose(double expected, double actual) {
+        assertTrue(Math.abs(expected - actual) <= PackedSimulator.TOLERANCE * Math.max(1, Math.abs(expected)),
+                () -> "expected " + expected + " but was " + actual);
+    }
+}
@@ -0,0 +1,88 @@
+package com.ede1998.genalg;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import static com.ede1998.genalg.SimulatorEquivalenceTest.creatures;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Promoted creatures have to get the fitness of a full simulation, all others the coarse distance scaled to the full
+ * time span.
+ */
+class StagedEvaluatorTest {
+    private static final long SEED = 20170314;
+    private static final int TIME = 3;
+    private static final int RESOLUTION = 2000;
+    private static final int COARSE_TIME = 1;
+    private static final int COARSE_RESOLUTION = 500;
+    private static final double PROMOTED_FRACTION = 0.25;
+
+    @Test
+    void promotedCreaturesGetExactFitness() {
+        final List<Creature> exact = creatures(), coarse = creatures(), staged = creatures();
+        final double[] start = new double[staged.size()];
+        for (int i = 0; i < start.length; i++)
+            start[i] = staged.get(i).getPositionX();
+        new SequentialEvaluator().evaluate(exact, TIME, RESOLUTION);
+        new SequentialEvaluator().evaluate(coarse, COARSE_TIME, COARSE_RESOLUTION);
+        final StagedEvaluator evaluator = new StagedEvaluator(new SequentialEvaluator(), COARSE_TIME,
+                COARSE_RESOLUTION, PROMOTED_FRACTION, 0.1, SEED);
+        evaluator.evaluate(staged, TIME, RESOLUTION);
+
+        int fine = 0;
+        for (int i = 0; i < staged.size(); i++) {
+            final Creature walker = staged.get(i);
+            if (walker.isFitnessEstimated()) {
+                final double scaled = start[i] + (coarse.get(i).getFitness() - start[i]) * TIME / COARSE_TIME;
+                assertEquals(scaled, walker.getFitness(), 1e-12, "creature " + i);
+            } else {
+                assertEquals(exact.get(i).getFitness(), walker.getFitness(), "creature " + i);
+                fine++;
+            }
+        }
+
+        //the best coarse distances are always promoted
+        final Integer[] order = new Integer[coarse.size()];
+        for (int i = 0; i < order.length; i++)
+            order[i] = i;
+        Arrays.sort(order, Comparator.comparingDouble(i -> start[i] - coarse.get(i).getFitness()));
+        final int promoted = (int) Math.ceil(PROMOTED_FRACTION * staged.size());
+        for (int rank = 0; rank < promoted; rank++)
+            assertFalse(staged.get(order[rank]).isFitnessEstimated(), "rank " + rank);
+
+        final StagedEvaluator.Report report = evaluator.getLastReport();
+        assertEquals(staged.size(), report.getCreatures());
+        assertEquals(fine, report.getFineEvaluations());
+        assertEquals(fine - promoted, report.getExplored());
+        assertTrue(fine < staged.size());
+    }
+
+    @Test
+    void stagedIsAnEvaluatorName() {
+        final Evaluator evaluator = Evaluator.forName("staged", 2);
+        try {
+            assertTrue(evaluator instanceof StagedEvaluator);
+            evaluator.evaluate(creatures(), TIME, RESOLUTION);
+            assertEquals(creatures().size(), ((StagedEvaluator) evaluator).getLastReport().getCreatures());
+        } finally {
+            evaluator.shutdown();
+        }
+    }
+
+    @Test
+    void tiedValuesShareTheirAverageRank() {
+        assertArrayEquals(new double[]{3, 0.5, 0.5, 3, 3, 5}, StagedEvaluator.ranks(new double[]{3, 1, 1, 3, 3, 7}));
+        assertEquals(1, StagedEvaluator.rankCorrelation(new double[]{1, 1, 2}, new double[]{5, 5, 9}), 1e-12);
+        //ranks 0.5 0.5 2 against 0 1 2
+        assertEquals(1.5 / Math.sqrt(3), StagedEvaluator.rankCorrelation(new double[]{1, 1, 2},
+                new double[]{1, 2, 3}), 1e-12);
+        assertEquals(-1, StagedEvaluator.rankCorrelation(new double[]{1, 2, 3, 4}, new double[]{4, 3, 2, 1}), 1e-12);
+    }
+}
@@ -0,0 +1,83 @@
+package com.ede1998.genalg;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Generations run out of genome stores have to be the same as generations of creature objects moved by the packed
+ * simulator.
+ */
+class StoredGenerationTest {
+    private static final long SEED = 20170314;
+    private static final int GENERATIONS = 8;
+    private static final EvolutionConfig SMALL = EvolutionConfig.DEFAULT.withPopulation(20).withTime(3)
+            .withResolution(2000);
+
+    @Test
+    void storedGenerationsMatchCreatureGenerations() {
+        final List<List<Object>> expected = new ArrayList<>();
+        Generation generation = new Generation(SMALL, SEED, new SequentialEvaluator(new PackedSimulator()));
+        expected.add(GenerationTest.summary(generation));
+        for (int g = 1; g < GENERATIONS; g++) {
+            generation = new Generation(generation);
+            expected.add(GenerationTest.summary(generation));
+        }
+        assertEquals(expected, run(null));
+    }
+
+    @Test
+    void executorMatchesCallingThread() {
+        final ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            assertEquals(run(null), run(executor));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void genomeStoreMatchesCreatures() {
+        final List<Creature> walkers = SimulatorEquivalenceTest.creatures();
+        final GenomeStore store = new GenomeStore(), copy = new GenomeStore();
+        for (Creature walker : walkers)
+            store.add(walker);
+        copy.grow(walkers.size());
+        for (int i = 0; i < walkers.size(); i++)
+            copy.set(walkers.size() - 1 - i, store, i);
+        final Creature decoded = new Creature();
+        for (int i = 0; i < walkers.size(); i++) {
+            copy.get(walkers.size() - 1 - i, decoded);
+            assertEquals(walkers.get(i).fingerprint(), decoded.fingerprint(), "creature " + i);
+        }
+    }
+
+    private static List<List<Object>> run(ExecutorService executor) {
+        final List<List<Object>> summaries = new ArrayList<>();
+        StoredGeneration generation = new StoredGeneration(SMALL, SEED, executor, Generation.defaultSelection(SMALL));
+        summaries.add(summary(generation));
+        for (int g = 1; g < GENERATIONS; g++) {
+            generation = new StoredGeneration(generation);
+            assertEquals(g, generation.getNumber());
+            summaries.add(summary(generation));
+        }
+        return summaries;
+    }
+
+    /**
+     * @return fingerprint and fitness of every creature, best first, like GenerationTest.summary
+     */
+    private static List<Object> summary(StoredGeneration generation) {
+        final List<Object> summary = new ArrayList<>();
+        for (int i = 0; i < generation.size(); i++) {
+            summary.add(generation.getWalkerAt(i).fingerprint());
+            summary.add(generation.getFitnessAt(i));
+        }
+        return summary;
+    }
+}